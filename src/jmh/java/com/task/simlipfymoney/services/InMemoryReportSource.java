@@ -0,0 +1,131 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.entities.ReferralEdge;
+import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.repositories.ReferralEdgeRepository;
+import com.task.simlipfymoney.repositories.UserRepository;
+import org.bson.types.ObjectId;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+// Users and referral edges held in memory, exposed through the repository interfaces the report reads from.
+// Only the methods used by the export are answered, anything else fails loudly.
+final class InMemoryReportSource {
+
+    private final List<User> users;
+
+    private final List<String> ids;
+
+    private final Map<String, List<ReferralEdge>> edgesByReferrer;
+
+    private InMemoryReportSource(List<User> users, List<ReferralEdge> edges) {
+        this.users = users;
+        this.ids = users.stream().map(User::getId).collect(Collectors.toList());
+        this.edgesByReferrer = edges.stream().collect(Collectors.groupingBy(ReferralEdge::getReferrerCode));
+    }
+
+    // Seeded so every fork exports the same data, every other user was referred by an earlier user
+    static InMemoryReportSource generate(int userCount) {
+        Random random = new Random(42);
+        ReferralCodeAllocator allocator = new ReferralCodeAllocator();
+        List<User> users = new ArrayList<>(userCount);
+        List<ReferralEdge> edges = new ArrayList<>();
+        for (int i = 0; i < userCount; i++) {
+            User user = new User();
+            user.setId(new ObjectId().toHexString());
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setReferralCode(allocator.allocate());
+            user.setProfileCompleted(i % 3 != 0);
+            user.setPhoneNumber(String.format("98%08d", i));
+            user.setAddress(i + " Main Street, Bengaluru");
+            if (i > 0 && i % 2 == 0) {
+                User referrer = users.get(random.nextInt(i));
+                user.setReferrerCode(referrer.getReferralCode());
+                ReferralEdge edge = new ReferralEdge();
+                edge.setReferrerCode(referrer.getReferralCode());
+                edge.setReferredEmail(user.getEmail());
+                edges.add(edge);
+            }
+            users.add(user);
+        }
+        users.sort(Comparator.comparing(User::getId));
+        return new InMemoryReportSource(users, edges);
+    }
+
+    List<User> users() {
+        return users;
+    }
+
+    UserRepository userRepository() {
+        return proxy(UserRepository.class, (name, args) -> switch (name) {
+            case "streamForReport" -> users.stream();
+            case "findForReport" -> page(args[0], args[1], args[2], (Integer) args[3]);
+            case "findIdBoundaries" -> idBoundaries((Integer) args[0]);
+            default -> throw new UnsupportedOperationException(name);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    ReferralEdgeRepository referralEdgeRepository() {
+        return proxy(ReferralEdgeRepository.class, (name, args) -> switch (name) {
+            case "findByReferrerCodeIn" -> ((Collection<String>) args[0]).stream()
+                    .flatMap(code -> edgesByReferrer.getOrDefault(code, List.of()).stream())
+                    .collect(Collectors.toList());
+            default -> throw new UnsupportedOperationException(name);
+        });
+    }
+
+    // First id of every range but the first, matching the repository contract
+    private List<Object> idBoundaries(int partitions) {
+        List<Object> boundaries = new ArrayList<>();
+        for (int i = 1; i < partitions; i++) {
+            boundaries.add(users.get(i * users.size() / partitions).getId());
+        }
+        return boundaries;
+    }
+
+    // Copy of the ids in [fromId, toId) after afterId, as the repository returns a fresh list per query
+    private List<User> page(Object fromId, Object afterId, Object toId, int limit) {
+        int from = afterId != null ? indexOf(afterId, 0) : indexOf(fromId, 0);
+        if (afterId != null && from < ids.size() && ids.get(from).equals(afterId)) {
+            from++;
+        }
+        int to = Math.min(indexOf(toId, users.size()), from + limit);
+        return new ArrayList<>(users.subList(from, Math.max(from, to)));
+    }
+
+    // Position of the first user with an id at or after the bound, users are sorted by id
+    private int indexOf(Object id, int unbounded) {
+        if (id == null) {
+            return unbounded;
+        }
+        int index = Collections.binarySearch(ids, (String) id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private interface Handler {
+        Object handle(String name, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> "InMemory" + type.getSimpleName();
+                };
+            }
+            return handler.handle(method.getName(), args == null ? new Object[0] : args);
+        }));
+    }
+}
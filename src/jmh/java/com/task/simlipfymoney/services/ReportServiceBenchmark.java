@@ -0,0 +1,97 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.entities.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// CSV export hot paths: single row formatting and whole report throughput in rows per second.
+// The source is in memory, so the parallel export shows formatting scaling without any cursor latency.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportServiceBenchmark {
+
+    private static final int USERS = 10_000;
+
+    private User user;
+
+    private List<String> referredUsers;
+
+    @Setup
+    public void setUp() {
+        user = InMemoryReportSource.generate(1).users().get(0);
+        user.setAddress("12, MG Road, Bengaluru");
+        referredUsers = List.of("a@example.com", "b@example.com", "c@example.com");
+    }
+
+    @State(Scope.Benchmark)
+    public static class Export {
+
+        // Export split into this many id ranges, formatted by as many workers
+        @Param({"1", "2", "4", "8"})
+        private int partitions;
+
+        private ReportService reportService;
+
+        private ExecutorService reportExecutor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            InMemoryReportSource source = InMemoryReportSource.generate(USERS);
+            reportExecutor = Executors.newFixedThreadPool(partitions);
+            reportService = new ReportService();
+            ReflectionTestUtils.setField(reportService, "userRepository", source.userRepository());
+            ReflectionTestUtils.setField(reportService, "referralEdgeRepository", source.referralEdgeRepository());
+            ReflectionTestUtils.setField(reportService, "reportExecutor", reportExecutor);
+            ReflectionTestUtils.setField(reportService, "batchSize", 500);
+            ReflectionTestUtils.setField(reportService, "partitions", partitions);
+            ReflectionTestUtils.setField(reportService, "workers", partitions);
+            ReflectionTestUtils.setField(reportService, "meterRegistry", new SimpleMeterRegistry());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            reportExecutor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public String formatRow() {
+        return ReportService.formatRow(user, referredUsers);
+    }
+
+    @Benchmark
+    public String sanitize() {
+        return ReportService.sanitize(user.getAddress());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(USERS)
+    public long writeReport(Export export) throws Exception {
+        return export.reportService.writeReport(Writer.nullWriter(), null, new AtomicLong());
+    }
+}
@@ -0,0 +1,57 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.dtos.UserResponse;
+import com.task.simlipfymoney.entities.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// Signup hot paths that do not touch the database
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private UserService userService;
+
+    private User user;
+
+    @Setup
+    public void setUp() {
+        userService = new UserService();
+        ReflectionTestUtils.setField(userService, "referralCodeAllocator", new ReferralCodeAllocator());
+
+        user = InMemoryReportSource.generate(1).users().get(0);
+    }
+
+    @Benchmark
+    public String generateReferralCode() {
+        return userService.generateReferralCode();
+    }
+
+    // Concurrent signups share the allocator, shows whether the striped random sources contend
+    @Benchmark
+    @Threads(8)
+    public String generateReferralCodeContended() {
+        return userService.generateReferralCode();
+    }
+
+    @Benchmark
+    public UserResponse mapToUserResponse() {
+        return UserService.mapToUserResponse(user);
+    }
+}
@@ -0,0 +1,13 @@
+package com.task.simlipfymoney.configs;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+
+// Kept out of the application class so web slice tests do not need a Mongo mapping context.
+// Both drivers need their own auditing callback, the reactive repositories do not see the blocking one.
+@Configuration
+@EnableMongoAuditing
+@EnableReactiveMongoAuditing
+public class MongoConfig {
+}
@@ -0,0 +1,42 @@
+package com.task.simlipfymoney.configs;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class PasswordHashingConfig {
+
+    // Each step of strength doubles the cost of a hash
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${password.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    // Hashing is CPU bound, the pool stays on platform threads and below the core count so it cannot take every core.
+    // A full queue rejects new work right away instead of letting a login burst pile up.
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor passwordHashExecutor(@Value("${password.hashing.workers:2}") int workers,
+                                                   @Value("${password.hashing.queue-capacity:64}") int queueCapacity) {
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // The queued gauge shows how close the pool is to rejecting work
+    @Bean
+    public MeterBinder passwordHashExecutorMetrics(@Qualifier("passwordHashExecutor") ThreadPoolExecutor passwordHashExecutor) {
+        return registry -> new ExecutorServiceMetrics(passwordHashExecutor, "password-hash", Tags.empty()).bindTo(registry);
+    }
+}
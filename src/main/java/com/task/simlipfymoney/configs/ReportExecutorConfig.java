@@ -0,0 +1,49 @@
+package com.task.simlipfymoney.configs;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+@Configuration
+public class ReportExecutorConfig {
+
+    // Same switch that moves Tomcat request handling onto virtual threads
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Worker pool shared by all partitioned report exports
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService reportExecutor(@Value("${report.export.workers:4}") int workers) {
+        return Executors.newFixedThreadPool(workers, threadFactory("report-export-"));
+    }
+
+    // Runs asynchronous report jobs, admission is limited by ReportJobService so jobs never queue here
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService reportJobExecutor(@Value("${report.jobs.max-concurrent:2}") int maxConcurrentJobs) {
+        return Executors.newFixedThreadPool(maxConcurrentJobs, threadFactory("report-job-"));
+    }
+
+    // Pool size, active, queued and completed task meters for both executors
+    @Bean
+    public MeterBinder reportExecutorMetrics(@Qualifier("reportExecutor") ExecutorService reportExecutor,
+                                             @Qualifier("reportJobExecutor") ExecutorService reportJobExecutor) {
+        return registry -> {
+            new ExecutorServiceMetrics(reportExecutor, "report-export", Tags.empty()).bindTo(registry);
+            new ExecutorServiceMetrics(reportJobExecutor, "report-job", Tags.empty()).bindTo(registry);
+        };
+    }
+
+    // With virtual threads the pool sizes still bound how many exports hit Mongo at once
+    private ThreadFactory threadFactory(String prefix) {
+        return virtualThreads ? Thread.ofVirtual().name(prefix, 1).factory() : new CustomizableThreadFactory(prefix);
+    }
+}
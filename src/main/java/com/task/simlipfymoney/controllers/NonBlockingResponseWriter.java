@@ -0,0 +1,200 @@
+package com.task.simlipfymoney.controllers;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+// Streams text chunks to the response with servlet non-blocking IO instead of a blocking write per chunk.
+// The next chunk is requested only once the container took the previous one. When the client reads slowly, isReady()
+// turns false and the writer returns, the container calls onWritePossible once the socket drains, so no thread waits
+// on the client. State is guarded by this, chunks arrive on publisher threads and write callbacks on container threads.
+final class NonBlockingResponseWriter implements WriteListener, AsyncListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(NonBlockingResponseWriter.class);
+
+    private final AsyncContext asyncContext;
+
+    private final ServletOutputStream out;
+
+    private final Chunks chunks = new Chunks();
+
+    // Received but not yet handed to the container
+    private byte[] pending;
+
+    private boolean requested;
+
+    // Set on the first onWritePossible, the output stream may not be used before
+    private boolean listening;
+
+    private boolean upstreamDone;
+
+    // Set while a drain loop runs, a chunk delivered from inside request(1) is written by that loop
+    private boolean draining;
+
+    private boolean closed;
+
+    private NonBlockingResponseWriter(AsyncContext asyncContext, ServletOutputStream out) {
+        this.asyncContext = asyncContext;
+        this.out = out;
+    }
+
+    // Starts async processing and returns at once, headers must be set before. A null timeout keeps the container default.
+    static void write(HttpServletRequest request, HttpServletResponse response, Flux<String> body, Duration timeout) throws IOException {
+        AsyncContext asyncContext = request.startAsync(request, response);
+        if (timeout != null) {
+            asyncContext.setTimeout(timeout.toMillis());
+        }
+        NonBlockingResponseWriter writer = new NonBlockingResponseWriter(asyncContext, response.getOutputStream());
+        asyncContext.addListener(writer);
+        body.subscribe(writer.chunks);
+        // The container calls onWritePossible once the listener is set, which requests the first chunk
+        writer.out.setWriteListener(writer);
+    }
+
+    @Override
+    public void onWritePossible() {
+        synchronized (this) {
+            listening = true;
+        }
+        drain();
+    }
+
+    // The client went away or the connection failed
+    @Override
+    public void onError(Throwable error) {
+        logger.warn("Streamed response aborted: {}", error.getMessage());
+        abort();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        logger.warn("Streamed response timed out after {} ms", asyncContext.getTimeout());
+        abort();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        abort();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        chunks.cancel();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    // Writes while the container accepts data, requesting one chunk at a time. Returns as soon as a write would block.
+    private void drain() {
+        synchronized (this) {
+            if (!listening || draining || closed) {
+                return;
+            }
+            draining = true;
+            try {
+                while (true) {
+                    if (pending == null && !upstreamDone) {
+                        if (!requested) {
+                            requested = true;
+                            chunks.request(1);
+                        }
+                        if (pending == null && !upstreamDone) {
+                            return;
+                        }
+                    }
+                    if (!out.isReady()) {
+                        return;
+                    }
+                    if (pending == null) {
+                        close();
+                        return;
+                    }
+                    byte[] chunk = pending;
+                    pending = null;
+                    out.write(chunk);
+                }
+            } catch (IOException e) {
+                logger.warn("Streamed response aborted: {}", e.getMessage());
+                chunks.cancel();
+                close();
+            } finally {
+                draining = false;
+            }
+        }
+    }
+
+    private void abort() {
+        chunks.cancel();
+        synchronized (this) {
+            close();
+        }
+    }
+
+    private void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            // Already completed by the container after a timeout or error
+        }
+    }
+
+    // Receives the body from the publisher, demand comes from drain only
+    private final class Chunks extends BaseSubscriber<String> {
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+        }
+
+        @Override
+        protected void hookOnNext(String chunk) {
+            synchronized (NonBlockingResponseWriter.this) {
+                pending = chunk.getBytes(StandardCharsets.UTF_8);
+                requested = false;
+            }
+            drain();
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            synchronized (NonBlockingResponseWriter.this) {
+                upstreamDone = true;
+            }
+            drain();
+        }
+
+        // Before the first byte the client gets a 500, after it the download ends early and the failure is only logged
+        @Override
+        protected void hookOnError(Throwable error) {
+            logger.error("Streamed response failed: {}", error.getMessage(), error);
+            synchronized (NonBlockingResponseWriter.this) {
+                HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+                if (!response.isCommitted()) {
+                    response.resetBuffer();
+                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+                pending = null;
+                upstreamDone = true;
+            }
+            drain();
+        }
+    }
+}
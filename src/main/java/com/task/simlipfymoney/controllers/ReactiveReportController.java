@@ -0,0 +1,39 @@
+package com.task.simlipfymoney.controllers;
+
+import com.task.simlipfymoney.services.ReactiveReportService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/api/reactive/report")
+@Tag(name = "Reactive CSV Report API")
+public class ReactiveReportController {
+
+    @Autowired
+    private ReactiveReportService reactiveReportService;
+
+    // Bounds a download the same way as the MVC async requests
+    @Value("${spring.mvc.async.request-timeout:}")
+    private Duration timeout;
+
+    // Written chunk by chunk with servlet non-blocking IO, the next chunk is requested once the previous one is sent.
+    // A slow client holds no thread, neither a request thread nor the one producing the chunks.
+    @GetMapping(value = "/referrals", produces = "text/csv")
+    public void generateReferralReport(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("text/csv");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=referral_report.csv");
+        NonBlockingResponseWriter.write(request, response, reactiveReportService.generateCsvReport(), timeout);
+    }
+}
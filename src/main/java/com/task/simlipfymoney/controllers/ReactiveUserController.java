@@ -0,0 +1,54 @@
+package com.task.simlipfymoney.controllers;
+
+import com.task.simlipfymoney.dtos.ProfileCompletionRequest;
+import com.task.simlipfymoney.dtos.ReferralCountResponse;
+import com.task.simlipfymoney.dtos.SignupRequest;
+import com.task.simlipfymoney.dtos.UserResponse;
+import com.task.simlipfymoney.services.ReactiveUserService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Same contract as UserController, handled without blocking a request thread on Mongo
+@RestController
+@RequestMapping("/api/reactive/user")
+@Tag(name = "Reactive User APIs")
+public class ReactiveUserController {
+
+    @Autowired
+    private ReactiveUserService reactiveUserService;
+
+    @PostMapping("/signup")
+    public Mono<UserResponse> signup(@Valid @RequestBody SignupRequest request) {
+        return reactiveUserService.signup(request);
+    }
+
+    @PostMapping("/complete-profile")
+    public Mono<UserResponse> completeProfile(@Valid @RequestBody ProfileCompletionRequest request) {
+        return reactiveUserService.completeProfile(request);
+    }
+
+    // The token for the next page is returned in the X-Next-Cursor header, absent on the last page
+    @GetMapping("/referred/{referralCode}")
+    public Mono<ResponseEntity<List<UserResponse>>> getReferredUsers(@PathVariable String referralCode,
+                                                                     @RequestParam(required = false) String cursor,
+                                                                     @RequestParam(required = false) Integer limit) {
+        return reactiveUserService.getReferredUsers(referralCode, cursor, limit).map(page -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(UserController.NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getUsers());
+        });
+    }
+
+    @GetMapping("/referred/{referralCode}/count")
+    public Mono<ReferralCountResponse> getReferralCount(@PathVariable String referralCode) {
+        return reactiveUserService.getReferralCount(referralCode);
+    }
+}
@@ -1,14 +1,27 @@
 package com.task.simlipfymoney.controllers;
 
 
+import com.task.simlipfymoney.dtos.ReportJobResponse;
+import com.task.simlipfymoney.services.ReportJobService;
 import com.task.simlipfymoney.services.ReportService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
+import java.time.Instant;
+
 @RestController
 @RequestMapping("/api/report")
 @Tag(name = "CSV Report API")
@@ -17,9 +30,33 @@ public class ReportController {
     @Autowired
     private ReportService reportService;
 
+    @Autowired
+    private ReportJobService reportJobService;
+
+    // since is an ISO-8601 instant, usually the X-Report-Watermark of the previous export
     @GetMapping("/referrals")
-    public void generateReferralReport(HttpServletResponse response) {
-        reportService.generateCsvReport(response);
+    public void generateReferralReport(@RequestParam(required = false) Instant since, HttpServletResponse response) {
+        reportService.generateCsvReport(response, since);
+    }
+
+    @PostMapping("/jobs")
+    public ResponseEntity<ReportJobResponse> startReportJob() {
+        ReportJobResponse job = reportJobService.startJob();
+        return ResponseEntity.accepted().location(URI.create("/api/report/jobs/" + job.getJobId())).body(job);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ReportJobResponse> getReportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(reportJobService.getJob(jobId));
+    }
+
+    @GetMapping("/jobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadReport(@PathVariable String jobId) {
+        FileSystemResource file = new FileSystemResource(reportJobService.getReportFile(jobId));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=referral_report.csv")
+                .body(file);
     }
 }
 
@@ -1,8 +1,15 @@
 package com.task.simlipfymoney.controllers;
 
+import com.task.simlipfymoney.dtos.BatchSignupResponse;
+import com.task.simlipfymoney.dtos.DownlineResponse;
+import com.task.simlipfymoney.dtos.ImportSummary;
+import com.task.simlipfymoney.dtos.LeaderboardEntry;
 import com.task.simlipfymoney.dtos.ProfileCompletionRequest;
+import com.task.simlipfymoney.dtos.ReferralCountResponse;
+import com.task.simlipfymoney.dtos.ReferredUsersPage;
 import com.task.simlipfymoney.dtos.SignupRequest;
 import com.task.simlipfymoney.dtos.UserResponse;
+import com.task.simlipfymoney.services.UserImportService;
 import com.task.simlipfymoney.services.UserService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -10,6 +17,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -17,24 +27,65 @@ import java.util.List;
 @Tag(name = "User APIs")
 public class UserController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserImportService userImportService;
+
     @PostMapping("/signup")
     public ResponseEntity<UserResponse> signup(@Valid @RequestBody SignupRequest request) {
         UserResponse user = userService.signup(request);
         return ResponseEntity.ok(user);
     }
 
+    // Items are validated one by one, an invalid item is reported in its result instead of failing the request
+    @PostMapping("/signup/batch")
+    public ResponseEntity<BatchSignupResponse> signupBatch(@RequestBody List<SignupRequest> requests) {
+        return ResponseEntity.ok(userService.signupBatch(requests));
+    }
+
+    // The request body is the CSV file itself, read incrementally while the import runs
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ImportSummary> importUsers(InputStream body) {
+        return ResponseEntity.ok(userImportService.importCsv(new InputStreamReader(body, StandardCharsets.UTF_8)));
+    }
+
     @PostMapping("/complete-profile")
     public ResponseEntity<UserResponse> completeProfile(@Valid @RequestBody ProfileCompletionRequest request) {
         UserResponse user = userService.completeProfile(request);
         return ResponseEntity.ok(user);
     }
 
+    // The token for the next page is returned in the X-Next-Cursor header, absent on the last page
     @GetMapping("/referred/{referralCode}")
-    public ResponseEntity<List<UserResponse>> getReferredUsers(@PathVariable String referralCode) {
-        List<UserResponse> referredUsers = userService.getReferredUsers(referralCode);
-        return ResponseEntity.ok(referredUsers);
+    public ResponseEntity<List<UserResponse>> getReferredUsers(@PathVariable String referralCode,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(required = false) Integer limit) {
+        ReferredUsersPage page = userService.getReferredUsers(referralCode, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getUsers());
+    }
+
+    @GetMapping("/referred/{referralCode}/count")
+    public ResponseEntity<ReferralCountResponse> getReferralCount(@PathVariable String referralCode) {
+        return ResponseEntity.ok(userService.getReferralCount(referralCode));
+    }
+
+    // Users referred directly and indirectly, depth 1 returns only direct referrals
+    @GetMapping("/downline/{referralCode}")
+    public ResponseEntity<DownlineResponse> getDownline(@PathVariable String referralCode,
+                                                        @RequestParam(required = false) Integer depth) {
+        return ResponseEntity.ok(userService.getDownline(referralCode, depth));
+    }
+
+    @GetMapping("/leaderboard")
+    public ResponseEntity<List<LeaderboardEntry>> getLeaderboard(@RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(userService.getLeaderboard(limit));
     }
 }
\ No newline at end of file
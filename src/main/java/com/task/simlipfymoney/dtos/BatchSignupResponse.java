@@ -0,0 +1,16 @@
+package com.task.simlipfymoney.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BatchSignupResponse {
+    private int created;
+    private int failed;
+
+    // One result per request, in request order
+    private List<BatchSignupResult> results;
+}
@@ -0,0 +1,23 @@
+package com.task.simlipfymoney.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BatchSignupResult {
+    // Position of the request in the submitted batch
+    private int index;
+    private String email;
+    private Status status;
+
+    // Set when the user was created
+    private UserResponse user;
+
+    // Set when the user was not created
+    private String error;
+
+    public enum Status {
+        CREATED, FAILED
+    }
+}
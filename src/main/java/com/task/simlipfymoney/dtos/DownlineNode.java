@@ -0,0 +1,15 @@
+package com.task.simlipfymoney.dtos;
+
+import lombok.Data;
+
+@Data
+public class DownlineNode {
+    private String name;
+    private String email;
+    private String referralCode;
+    private String referrerCode;
+    private boolean profileCompleted;
+
+    // 1 for direct referrals, 2 for their referrals and so on
+    private int depth;
+}
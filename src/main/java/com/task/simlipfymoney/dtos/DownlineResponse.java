@@ -0,0 +1,17 @@
+package com.task.simlipfymoney.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class DownlineResponse {
+    private String referralCode;
+    private int depth;
+    private List<DownlineNode> nodes;
+
+    // True when a level or the whole tree hit its size limit and nodes were left out
+    private boolean truncated;
+}
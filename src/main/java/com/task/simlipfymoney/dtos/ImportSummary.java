@@ -0,0 +1,31 @@
+package com.task.simlipfymoney.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ImportSummary {
+    private long rowsRead;
+    private long created;
+    private long failed;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+
+    // False when the file could not be read to the end, rows before the failure stay imported
+    private boolean completed;
+
+    // The first rejected rows, errorsTruncated is set when more rows failed than are listed
+    private List<ImportError> errors;
+    private boolean errorsTruncated;
+
+    @Data
+    @Builder
+    public static class ImportError {
+        private long line;
+        private String email;
+        private String error;
+    }
+}
@@ -0,0 +1,13 @@
+package com.task.simlipfymoney.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LeaderboardEntry {
+    private int rank;
+    private String referralCode;
+    private long completedReferrals;
+    private long signedUpReferrals;
+}
@@ -0,0 +1,12 @@
+package com.task.simlipfymoney.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ReferralCountResponse {
+    private String referralCode;
+    private long signedUpReferrals;
+    private long completedReferrals;
+}
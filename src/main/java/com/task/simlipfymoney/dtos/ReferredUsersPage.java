@@ -0,0 +1,15 @@
+package com.task.simlipfymoney.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ReferredUsersPage {
+    private List<UserResponse> users;
+
+    // Opaque token for the following page, null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,22 @@
+package com.task.simlipfymoney.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class ReportJobResponse {
+    private String jobId;
+    private Status status;
+    private long rowsWritten;
+    private long elapsedMillis;
+    private Instant createdAt;
+    private Instant completedAt;
+    private String downloadUrl;
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+}
@@ -1,5 +1,7 @@
 package com.task.simlipfymoney.dtos;
 
+import com.task.simlipfymoney.services.PasswordHasher;
+import com.task.simlipfymoney.validation.MaxUtf8Bytes;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -19,6 +21,7 @@ public class SignupRequest {
 
     @NotNull
     @NotEmpty
+    @MaxUtf8Bytes(PasswordHasher.MAX_PASSWORD_BYTES)
     private String password;
 
     //Nullable
@@ -0,0 +1,22 @@
+package com.task.simlipfymoney.entities;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Referral totals of one referrer, maintained with $inc on signup and profile completion
+@Data
+@Document(collection = "referral_counters")
+public class ReferralCounter {
+    // Referral code of the referrer
+    @Id
+    private String referralCode;
+
+    // Users who signed up with the code
+    private long signedUp;
+
+    // Referred users who completed their profile, indexed for the leaderboard
+    @Indexed
+    private long completed;
+}
@@ -0,0 +1,30 @@
+package com.task.simlipfymoney.entities;
+
+import lombok.Data;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// A successful referral: the user with referredEmail completed their profile after signing up with referrerCode
+@Data
+@Document(collection = "referral_edges")
+@CompoundIndexes({
+        @CompoundIndex(name = "referrer_referred", def = "{'referrerCode': 1, 'referredEmail': 1}", unique = true),
+        // Keyset pagination of a referrer's referrals
+        @CompoundIndex(name = "referrer_id", def = "{'referrerCode': 1, '_id': 1}")
+})
+public class ReferralEdge {
+    @Id
+    private String id;
+
+    private String referrerCode;
+
+    private String referredEmail;
+
+    @CreatedDate
+    private Instant createdAt;
+}
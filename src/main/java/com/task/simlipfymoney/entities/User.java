@@ -5,11 +5,13 @@ import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import lombok.Data;
+import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Instant;
 
 @Data
 @Document(collection = "users")
@@ -24,14 +26,17 @@ public class User {
     @NotNull
     @NotEmpty
     @Email(message = "enter a valid email")
+    @Indexed(unique = true)
     private String email;
 
     @NotNull
     @NotEmpty(message = "password must be present")
     private String password;
 
+    @Indexed(unique = true)
     private String referralCode;
 
+    @Indexed
     private String referrerCode;
 
     private boolean profileCompleted;
@@ -44,5 +49,11 @@ public class User {
     @NotEmpty
     private String address;
 
-    private List<String> referredUsers;
+    @CreatedDate
+    private Instant createdAt;
+
+    // Drives the incremental referral report, bumped on every write to the document
+    @Indexed
+    @LastModifiedDate
+    private Instant lastModifiedAt;
 }
\ No newline at end of file
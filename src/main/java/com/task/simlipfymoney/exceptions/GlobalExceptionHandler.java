@@ -6,8 +6,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
@@ -28,6 +31,13 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
 
+    @ExceptionHandler(InvalidPageCursorException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidPageCursorException(InvalidPageCursorException ex) {
+        logger.error("InvalidPageCursorException: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Invalid page cursor.");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+
     @ExceptionHandler(UserNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleUserNotFoundException(UserNotFoundException ex) {
         logger.error("UserNotFoundException: {}", ex.getMessage());
@@ -35,6 +45,34 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
     }
 
+    @ExceptionHandler(ReferralCodeAllocationException.class)
+    public ResponseEntity<ErrorResponse> handleReferralCodeAllocationException(ReferralCodeAllocationException ex) {
+        logger.error("ReferralCodeAllocationException: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Could not complete signup. Please try again.");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+
+    @ExceptionHandler(BatchTooLargeException.class)
+    public ResponseEntity<ErrorResponse> handleBatchTooLargeException(BatchTooLargeException ex) {
+        logger.error("BatchTooLargeException: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Too many users in batch.");
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(errorResponse);
+    }
+
+    @ExceptionHandler(InvalidImportFileException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidImportFileException(InvalidImportFileException ex) {
+        logger.error("InvalidImportFileException: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handlePasswordHashingUnavailableException(PasswordHashingUnavailableException ex) {
+        logger.error("PasswordHashingUnavailableException: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Server is busy. Please try again later.");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+
     @ExceptionHandler(CsvGenerationException.class)
     public ResponseEntity<ErrorResponse> handleCsvGenerationException(CsvGenerationException ex) {
         logger.error("CsvGenerationException: {}", ex.getMessage());
@@ -42,6 +80,52 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
     }
 
+    @ExceptionHandler(ReportJobNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleReportJobNotFoundException(ReportJobNotFoundException ex) {
+        logger.error("ReportJobNotFoundException: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Report job not found.");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+    }
+
+    @ExceptionHandler(ReportJobNotReadyException.class)
+    public ResponseEntity<ErrorResponse> handleReportJobNotReadyException(ReportJobNotReadyException ex) {
+        logger.error("ReportJobNotReadyException: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Report is not ready for download.");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
+    @ExceptionHandler(TooManyReportJobsException.class)
+    public ResponseEntity<ErrorResponse> handleTooManyReportJobsException(TooManyReportJobsException ex) {
+        logger.error("TooManyReportJobsException: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Too many report jobs running. Please try again later.");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse);
+    }
+
+    @ExceptionHandler(PasswordTooLongException.class)
+    public ResponseEntity<ErrorResponse> handlePasswordTooLongException(PasswordTooLongException ex) {
+        logger.error("PasswordTooLongException: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+
+    // Same wording as the per item errors of a batch signup
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<ErrorResponse> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
+        logger.error("MethodArgumentNotValidException: {}", ex.getMessage());
+        FieldError error = ex.getBindingResult().getFieldError();
+        ErrorResponse errorResponse = new ErrorResponse(error != null
+                ? "Invalid " + error.getField() + ": " + error.getDefaultMessage()
+                : "Invalid request.");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<ErrorResponse> handleMethodArgumentTypeMismatchException(MethodArgumentTypeMismatchException ex) {
+        logger.error("MethodArgumentTypeMismatchException: {}", ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse("Invalid value for parameter " + ex.getName() + ".");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGenericException(Exception ex) {
         logger.error("An unexpected error occurred: {}", ex.getMessage(), ex);
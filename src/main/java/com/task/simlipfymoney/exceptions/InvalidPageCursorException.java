@@ -0,0 +1,7 @@
+package com.task.simlipfymoney.exceptions;
+
+public class InvalidPageCursorException extends RuntimeException {
+    public InvalidPageCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.task.simlipfymoney.exceptions;
+
+public class PasswordHashingUnavailableException extends RuntimeException {
+    public PasswordHashingUnavailableException(String message) {
+        super(message);
+    }
+}
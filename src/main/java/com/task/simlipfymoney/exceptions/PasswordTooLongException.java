@@ -0,0 +1,7 @@
+package com.task.simlipfymoney.exceptions;
+
+public class PasswordTooLongException extends RuntimeException {
+    public PasswordTooLongException(String message) {
+        super(message);
+    }
+}
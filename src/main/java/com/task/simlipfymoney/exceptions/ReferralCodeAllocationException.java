@@ -0,0 +1,7 @@
+package com.task.simlipfymoney.exceptions;
+
+public class ReferralCodeAllocationException extends RuntimeException {
+    public ReferralCodeAllocationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.task.simlipfymoney.exceptions;
+
+public class ReportJobNotFoundException extends RuntimeException {
+    public ReportJobNotFoundException(String message) {
+        super(message);
+    }
+}
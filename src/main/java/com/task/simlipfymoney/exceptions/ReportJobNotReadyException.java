@@ -0,0 +1,7 @@
+package com.task.simlipfymoney.exceptions;
+
+public class ReportJobNotReadyException extends RuntimeException {
+    public ReportJobNotReadyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.task.simlipfymoney.exceptions;
+
+public class TooManyReportJobsException extends RuntimeException {
+    public TooManyReportJobsException(String message) {
+        super(message);
+    }
+}
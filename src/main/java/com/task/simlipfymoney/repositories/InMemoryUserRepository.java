@@ -0,0 +1,734 @@
+package com.task.simlipfymoney.repositories;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.simlipfymoney.entities.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.data.support.ExampleMatcherAccessor;
+import org.springframework.stereotype.Repository;
+
+import java.beans.PropertyDescriptor;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Users kept in process memory, replaces the Mongo backed repository when the "memory" profile is active.
+// The unique email and referralCode indexes behave like the Mongo ones: a missing value is indexed as null and
+// taken by at most one user, violations throw DuplicateKeyException with the same "index: <name> " message.
+// Callers get copies, a returned user changes the store only when saved, like a document read from Mongo.
+// With user.store.snapshot-path set, every write is appended to that file before it is applied. On startup the
+// file is replayed and rewritten as a compact snapshot. Only the users collection lives here, referral edges,
+// referral counters and the reactive repositories still use Mongo.
+@Repository
+@Primary
+@Profile("memory")
+public class InMemoryUserRepository implements UserRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryUserRepository.class);
+
+    // Stands in for null in the unique indexes, ConcurrentHashMap does not take null keys
+    private static final Object NULL_KEY = new Object();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Append-only file of writes, blank keeps the store purely in memory
+    @Value("${user.store.snapshot-path:}")
+    private String snapshotPath;
+
+    // Ordered by id, for generated ObjectIds that is insertion order like Mongo's natural order
+    private final ConcurrentSkipListMap<String, User> users = new ConcurrentSkipListMap<>();
+
+    private final Map<Object, String> idsByEmail = new ConcurrentHashMap<>();
+
+    private final Map<Object, String> idsByReferralCode = new ConcurrentHashMap<>();
+
+    // Like the referrerCode index, ids of the users each referrer brought in, in id order
+    private final Map<String, Set<String>> idsByReferrerCode = new ConcurrentHashMap<>();
+
+    // Serialises writes so unique checks, indexes and the file stay consistent, reads never take it
+    private final Object writeLock = new Object();
+
+    private BufferedWriter snapshot;
+
+    @PostConstruct
+    void init() throws IOException {
+        logger.info("Users are kept in memory, referral edges, referral counters and the reactive API still use MongoDB.");
+        if (snapshotPath == null || snapshotPath.isBlank()) {
+            return;
+        }
+        Path path = Path.of(snapshotPath);
+        if (Files.exists(path)) {
+            replay(path);
+        }
+        compact(path);
+        snapshot = Files.newBufferedWriter(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        logger.info("In-memory user store loaded {} users from {}.", users.size(), path);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        synchronized (writeLock) {
+            if (snapshot != null) {
+                snapshot.close();
+                snapshot = null;
+            }
+        }
+    }
+
+    @Override
+    public Optional<User> findByReferralCode(String referralCode) {
+        return findByUnique(idsByReferralCode, referralCode, User::getReferralCode);
+    }
+
+    // Wrapped like the Mongo repository does it: present with the matching users, empty when none match
+    @Override
+    public Optional<List<User>> findByEmailInAndProfileCompletedTrue(List<String> emails) {
+        List<User> found = ids(idsByEmail, emails).stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .filter(user -> user.isProfileCompleted() && emails.contains(user.getEmail()))
+                .map(InMemoryUserRepository::copyOf)
+                .collect(Collectors.toList());
+        return found.isEmpty() ? Optional.empty() : Optional.of(found);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return findByUnique(idsByEmail, email, User::getEmail);
+    }
+
+    @Override
+    public Stream<User> streamForReport(int batchSize) {
+        return users.values().stream().map(user -> project(user, UserRepositoryCustomImpl.REPORT_FIELDS));
+    }
+
+    @Override
+    public List<User> findForReport(Object fromId, Object afterId, Object toId, int limit) {
+        NavigableMap<String, User> range = users;
+        if (afterId != null) {
+            range = range.tailMap(afterId.toString(), false);
+        } else if (fromId != null) {
+            range = range.tailMap(fromId.toString(), true);
+        }
+        if (toId != null) {
+            range = range.headMap(toId.toString(), false);
+        }
+        return range.values().stream()
+                .limit(limit)
+                .map(user -> project(user, UserRepositoryCustomImpl.REPORT_FIELDS))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<User> streamForReportModifiedSince(Instant since, int batchSize) {
+        return users.values().stream()
+                .filter(user -> user.getLastModifiedAt() != null && !user.getLastModifiedAt().isBefore(since))
+                .sorted(Comparator.comparing(User::getLastModifiedAt))
+                .map(user -> project(user, UserRepositoryCustomImpl.REPORT_FIELDS));
+    }
+
+    // A limit of 0 returns every match, as for a Mongo query
+    @Override
+    public List<User> findReferredBy(Collection<String> referrerCodes, int limit) {
+        Set<String> codes = new HashSet<>(referrerCodes);
+        Set<String> ids = new TreeSet<>();
+        codes.forEach(code -> ids.addAll(idsByReferrerCode.getOrDefault(code, Set.of())));
+        return ids.stream()
+                .map(users::get)
+                .filter(user -> user != null && codes.contains(user.getReferrerCode()))
+                .limit(limit > 0 ? limit : Long.MAX_VALUE)
+                .map(user -> project(user, UserRepositoryCustomImpl.DOWNLINE_FIELDS))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Set<String> findExistingReferralCodes(Collection<String> referralCodes) {
+        return referralCodes.stream()
+                .filter(code -> findByReferralCode(code).isPresent())
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Map<Integer, String> insertUnordered(List<User> batch) {
+        Map<Integer, String> errors = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                insert(batch.get(i));
+            } catch (DuplicateKeyException e) {
+                errors.put(i, e.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    @Override
+    public void touchByReferralCode(String referralCode) {
+        synchronized (writeLock) {
+            String id = idsByReferralCode.get(key(referralCode));
+            User user = id == null ? null : users.get(id);
+            if (user != null) {
+                User touched = copyOf(user);
+                touched.setLastModifiedAt(now());
+                store(user, touched);
+            }
+        }
+    }
+
+    @Override
+    public void updateProfiles(List<User> batch, Collection<String> touchedReferralCodes) {
+        synchronized (writeLock) {
+            for (User user : batch) {
+                User existing = users.get(user.getId());
+                if (existing == null) {
+                    continue;
+                }
+                User updated = copyOf(existing);
+                updated.setName(user.getName());
+                updated.setPhoneNumber(user.getPhoneNumber());
+                updated.setAddress(user.getAddress());
+                updated.setProfileCompleted(user.isProfileCompleted());
+                updated.setPassword(user.getPassword());
+                updated.setLastModifiedAt(now());
+                store(existing, updated);
+            }
+            touchedReferralCodes.forEach(this::touchByReferralCode);
+        }
+    }
+
+    // Exact split points, there is nothing to gain from sampling in memory
+    @Override
+    public List<Object> findIdBoundaries(int partitions) {
+        List<Object> boundaries = new ArrayList<>();
+        List<String> ids = new ArrayList<>(users.keySet());
+        if (partitions < 2 || ids.isEmpty()) {
+            return boundaries;
+        }
+        for (int i = 1; i < partitions; i++) {
+            String id = ids.get(i * ids.size() / partitions);
+            if (boundaries.isEmpty() || !boundaries.get(boundaries.size() - 1).equals(id)) {
+                boundaries.add(id);
+            }
+        }
+        return boundaries;
+    }
+
+    @Override
+    public <S extends User> S insert(S entity) {
+        return write(entity, true);
+    }
+
+    @Override
+    public <S extends User> List<S> insert(Iterable<S> entities) {
+        return StreamSupport.stream(entities.spliterator(), false)
+                .map(this::insert)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public <S extends User> S save(S entity) {
+        return write(entity, false);
+    }
+
+    @Override
+    public <S extends User> List<S> saveAll(Iterable<S> entities) {
+        return StreamSupport.stream(entities.spliterator(), false)
+                .map(this::save)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<User> findById(String id) {
+        return Optional.ofNullable(users.get(id)).map(InMemoryUserRepository::copyOf);
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return users.values().stream().map(InMemoryUserRepository::copyOf).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> findAll(Sort sort) {
+        return users.values().stream()
+                .sorted(comparator(sort))
+                .map(InMemoryUserRepository::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Page<User> findAll(Pageable pageable) {
+        return page(findAll(pageable.getSort()), pageable);
+    }
+
+    @Override
+    public List<User> findAllById(Iterable<String> ids) {
+        Set<String> wanted = new HashSet<>();
+        ids.forEach(wanted::add);
+        return users.values().stream()
+                .filter(user -> wanted.contains(user.getId()))
+                .map(InMemoryUserRepository::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long count() {
+        return users.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        synchronized (writeLock) {
+            User existing = users.get(id);
+            if (existing != null) {
+                store(existing, null);
+            }
+        }
+    }
+
+    @Override
+    public void delete(User entity) {
+        deleteById(entity.getId());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends User> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        synchronized (writeLock) {
+            users.keySet().forEach(this::deleteById);
+        }
+    }
+
+    // The first match in id order, like findOne on a Mongo query
+    @Override
+    public <S extends User> Optional<S> findOne(Example<S> example) {
+        return matching(example).findFirst();
+    }
+
+    @Override
+    public <S extends User> List<S> findAll(Example<S> example) {
+        return matching(example).collect(Collectors.toList());
+    }
+
+    @Override
+    public <S extends User> List<S> findAll(Example<S> example, Sort sort) {
+        return matching(example).sorted(comparator(sort)).collect(Collectors.toList());
+    }
+
+    @Override
+    public <S extends User> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return page(findAll(example, pageable.getSort()), pageable);
+    }
+
+    @Override
+    public <S extends User> long count(Example<S> example) {
+        return matching(example).count();
+    }
+
+    @Override
+    public <S extends User> boolean exists(Example<S> example) {
+        return matching(example).findAny().isPresent();
+    }
+
+    @Override
+    public <S extends User, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        return queryFunction.apply(new ExampleQuery<>(example, example.getProbeType(), Sort.unsorted(), 0, List.of()));
+    }
+
+    // Mirrors Mongo auditing, a user without id is new and gets both timestamps, any other only lastModifiedAt
+    private <S extends User> S write(S entity, boolean insert) {
+        synchronized (writeLock) {
+            boolean isNew = entity.getId() == null;
+            String id = isNew ? new ObjectId().toHexString() : entity.getId();
+            User existing = users.get(id);
+            if (insert && existing != null) {
+                throw duplicateKey("_id_", "_id", id);
+            }
+            checkUnique(idsByEmail, "email", entity.getEmail(), id);
+            checkUnique(idsByReferralCode, "referralCode", entity.getReferralCode(), id);
+
+            Instant now = now();
+            entity.setId(id);
+            if (isNew) {
+                entity.setCreatedAt(now);
+            }
+            entity.setLastModifiedAt(now);
+            store(existing, copyOf(entity));
+            return entity;
+        }
+    }
+
+    // Appends the write to the file first, so a failed append leaves memory unchanged. Callers hold the write lock.
+    private void store(User existing, User updated) {
+        String id = updated != null ? updated.getId() : existing.getId();
+        append(new LogEntry(id, updated));
+        apply(existing, id, updated);
+    }
+
+    private void apply(User existing, String id, User updated) {
+        if (existing != null) {
+            idsByEmail.remove(key(existing.getEmail()), id);
+            idsByReferralCode.remove(key(existing.getReferralCode()), id);
+            if (existing.getReferrerCode() != null) {
+                idsByReferrerCode.computeIfPresent(existing.getReferrerCode(), (code, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+        if (updated == null) {
+            users.remove(id);
+            return;
+        }
+        users.put(id, updated);
+        idsByEmail.put(key(updated.getEmail()), id);
+        idsByReferralCode.put(key(updated.getReferralCode()), id);
+        if (updated.getReferrerCode() != null) {
+            idsByReferrerCode.computeIfAbsent(updated.getReferrerCode(), code -> new ConcurrentSkipListSet<>()).add(id);
+        }
+    }
+
+    private void checkUnique(Map<Object, String> index, String field, String value, String id) {
+        String owner = index.get(key(value));
+        if (owner != null && !owner.equals(id)) {
+            throw duplicateKey(field, field, value);
+        }
+    }
+
+    private Optional<User> findByUnique(Map<Object, String> index, String value, Function<User, String> field) {
+        String id = index.get(key(value));
+        User user = id == null ? null : users.get(id);
+        // The index may briefly point at a user being rewritten, the stored document decides
+        return user != null && Objects.equals(field.apply(user), value) ? Optional.of(copyOf(user)) : Optional.empty();
+    }
+
+    // Ids of the users matching any of the values, in id order
+    private Set<String> ids(Map<Object, String> index, Collection<String> values) {
+        Set<String> ids = new TreeSet<>();
+        for (String value : values) {
+            String id = index.get(key(value));
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private void replay(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                LogEntry entry;
+                try {
+                    entry = objectMapper.readValue(line, LogEntry.class);
+                } catch (JsonProcessingException e) {
+                    // Only the last line can be torn, by a crash in the middle of an append
+                    logger.warn("Ignoring unreadable entry at the end of {}: {}", path, e.getOriginalMessage());
+                    break;
+                }
+                apply(users.get(entry.id()), entry.id(), entry.user());
+            }
+        }
+    }
+
+    // Rewrites the file with one entry per live user, swapped in atomically so a crash keeps the old file
+    private void compact(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path compacted = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(compacted)) {
+            for (User user : users.values()) {
+                writer.write(objectMapper.writeValueAsString(new LogEntry(user.getId(), user)));
+                writer.newLine();
+            }
+        }
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void append(LogEntry entry) {
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            snapshot.write(objectMapper.writeValueAsString(entry));
+            snapshot.newLine();
+            snapshot.flush();
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Failed to append to the user snapshot " + snapshotPath, e);
+        }
+    }
+
+    // Copies of the users matching the example in id order. Only users of the probe type match, like the type
+    // restriction Mongo adds to the query.
+    @SuppressWarnings("unchecked")
+    private <S extends User> Stream<S> matching(Example<S> example) {
+        Predicate<User> filter = exampleFilter(example);
+        return users.values().stream()
+                .filter(user -> example.getProbeType().isInstance(user) && filter.test(user))
+                .map(user -> (S) copyOf(user));
+    }
+
+    // Mongo's matching rules: every property set on the probe takes part, primitives included, null ones only with
+    // NullHandler.INCLUDE. Strings are compared with the matcher's StringMatcher and case setting, other values with equals.
+    private static Predicate<User> exampleFilter(Example<?> example) {
+        ExampleMatcherAccessor matcher = new ExampleMatcherAccessor(example.getMatcher());
+        BeanWrapper probe = new BeanWrapperImpl(example.getProbe());
+        List<Predicate<User>> conditions = new ArrayList<>();
+        for (PropertyDescriptor property : probe.getPropertyDescriptors()) {
+            String path = property.getName();
+            if (property.getReadMethod() == null || property.getWriteMethod() == null || matcher.isIgnoredPath(path)) {
+                continue;
+            }
+            Object value = matcher.getValueTransformerForPath(path)
+                    .apply(Optional.ofNullable(probe.getPropertyValue(path)))
+                    .orElse(null);
+            if (value == null) {
+                if (matcher.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE) {
+                    conditions.add(user -> new BeanWrapperImpl(user).getPropertyValue(path) == null);
+                }
+            } else if (value instanceof String text) {
+                ExampleMatcher.StringMatcher stringMatcher = matcher.getStringMatcherForPath(path);
+                boolean ignoreCase = matcher.isIgnoreCaseForPath(path);
+                conditions.add(user -> new BeanWrapperImpl(user).getPropertyValue(path) instanceof String candidate
+                        && matches(candidate, text, stringMatcher, ignoreCase));
+            } else {
+                conditions.add(user -> value.equals(new BeanWrapperImpl(user).getPropertyValue(path)));
+            }
+        }
+        if (conditions.isEmpty()) {
+            return user -> true;
+        }
+        return example.getMatcher().isAllMatching()
+                ? user -> conditions.stream().allMatch(condition -> condition.test(user))
+                : user -> conditions.stream().anyMatch(condition -> condition.test(user));
+    }
+
+    private static boolean matches(String candidate, String probe, ExampleMatcher.StringMatcher stringMatcher, boolean ignoreCase) {
+        if (stringMatcher == ExampleMatcher.StringMatcher.REGEX) {
+            return Pattern.compile(probe, ignoreCase ? Pattern.CASE_INSENSITIVE : 0)
+                    .matcher(candidate).find();
+        }
+        String value = ignoreCase ? candidate.toLowerCase(Locale.ROOT) : candidate;
+        String part = ignoreCase ? probe.toLowerCase(Locale.ROOT) : probe;
+        return switch (stringMatcher) {
+            case STARTING -> value.startsWith(part);
+            case ENDING -> value.endsWith(part);
+            case CONTAINING -> value.contains(part);
+            default -> value.equals(part);
+        };
+    }
+
+    private static <T> Page<T> page(List<T> sorted, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(sorted, pageable, sorted.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), sorted.size());
+        int to = Math.min(from + pageable.getPageSize(), sorted.size());
+        return new PageImpl<>(sorted.subList(from, to), pageable, sorted.size());
+    }
+
+    // Mongo keeps dates to the millisecond
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private static Object key(String value) {
+        return value == null ? NULL_KEY : value;
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User();
+        BeanUtils.copyProperties(user, copy);
+        return copy;
+    }
+
+    // Only the id and the given fields, like a Mongo query with a field projection
+    private static User project(User user, String... fields) {
+        BeanWrapper source = new BeanWrapperImpl(user);
+        BeanWrapper target = new BeanWrapperImpl(new User());
+        target.setPropertyValue("id", user.getId());
+        for (String field : fields) {
+            target.setPropertyValue(field, source.getPropertyValue(field));
+        }
+        return (User) target.getWrappedInstance();
+    }
+
+    // Missing values sort first, as in Mongo
+    @SuppressWarnings("unchecked")
+    private static Comparator<User> comparator(Sort sort) {
+        Comparator<User> comparator = (first, second) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<User> byProperty = Comparator.comparing(
+                    user -> (Comparable<Object>) new BeanWrapperImpl(user).getPropertyValue(order.getProperty()),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+
+    private static DuplicateKeyException duplicateKey(String index, String field, String value) {
+        return new DuplicateKeyException(String.format("E11000 duplicate key error collection: users index: %s dup key: { %s: %s }",
+                index, field, value == null ? "null" : "\"" + value + "\""));
+    }
+
+    // One write in the snapshot file, a null user deletes the id
+    private record LogEntry(String id, User user) {
+    }
+
+    // findBy over the matching users. Results can only be read as User or a supertype, as() to any other type throws.
+    private final class ExampleQuery<S extends User, R> implements FluentQuery.FetchableFluentQuery<R> {
+
+        private final Example<S> example;
+
+        private final Class<R> resultType;
+
+        private final Sort sort;
+
+        // 0 returns every match
+        private final int limit;
+
+        // Empty returns whole users, otherwise the id and these fields
+        private final List<String> fields;
+
+        private ExampleQuery(Example<S> example, Class<R> resultType, Sort sort, int limit, List<String> fields) {
+            this.example = example;
+            this.resultType = resultType;
+            this.sort = sort;
+            this.limit = limit;
+            this.fields = fields;
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> sortBy(Sort sort) {
+            return new ExampleQuery<>(example, resultType, this.sort.and(sort), limit, fields);
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> limit(int limit) {
+            return new ExampleQuery<>(example, resultType, sort, limit, fields);
+        }
+
+        @Override
+        public <T> FluentQuery.FetchableFluentQuery<T> as(Class<T> resultType) {
+            if (!resultType.isAssignableFrom(User.class)) {
+                throw new UnsupportedOperationException("The in-memory user store can only return users, not " + resultType.getName());
+            }
+            return new ExampleQuery<>(example, resultType, sort, limit, fields);
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> project(Collection<String> properties) {
+            return new ExampleQuery<>(example, resultType, sort, limit, List.copyOf(properties));
+        }
+
+        @Override
+        public R oneValue() {
+            List<R> found = stream().limit(2).toList();
+            if (found.size() > 1) {
+                throw new IncorrectResultSizeDataAccessException(1, found.size());
+            }
+            return found.isEmpty() ? null : found.get(0);
+        }
+
+        @Override
+        public R firstValue() {
+            return stream().findFirst().orElse(null);
+        }
+
+        @Override
+        public List<R> all() {
+            return stream().collect(Collectors.toList());
+        }
+
+        @Override
+        public Page<R> page(Pageable pageable) {
+            return InMemoryUserRepository.page(sortBy(pageable.getSort()).all(), pageable);
+        }
+
+        @Override
+        public Stream<R> stream() {
+            Stream<S> found = matching(example).sorted(comparator(sort));
+            if (limit > 0) {
+                found = found.limit(limit);
+            }
+            return found.map(user -> resultType.cast(fields.isEmpty() ? user : InMemoryUserRepository.project(user, fields.toArray(String[]::new))));
+        }
+
+        @Override
+        public long count() {
+            return matching(example).count();
+        }
+
+        @Override
+        public boolean exists() {
+            return matching(example).findAny().isPresent();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.ReferralCounter;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface ReactiveReferralCounterRepository extends ReactiveMongoRepository<ReferralCounter, String>, ReactiveReferralCounterRepositoryCustom {
+}
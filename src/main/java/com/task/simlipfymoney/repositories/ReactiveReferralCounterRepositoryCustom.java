@@ -0,0 +1,10 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.ReferralCounter;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveReferralCounterRepositoryCustom {
+
+    // Atomically adds to the counters of referralCode, creating them when missing, and emits the new totals
+    Mono<ReferralCounter> increment(String referralCode, long signedUp, long completed);
+}
@@ -0,0 +1,25 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.ReferralCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+public class ReactiveReferralCounterRepositoryCustomImpl implements ReactiveReferralCounterRepositoryCustom {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Mono<ReferralCounter> increment(String referralCode, long signedUp, long completed) {
+        Update update = new Update()
+                .inc("signedUp", signedUp)
+                .inc("completed", completed);
+        return reactiveMongoTemplate.findAndModify(new Query(Criteria.where("referralCode").is(referralCode)), update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), ReferralCounter.class);
+    }
+}
@@ -0,0 +1,20 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.ReferralEdge;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+public interface ReactiveReferralEdgeRepository extends ReactiveMongoRepository<ReferralEdge, String> {
+
+    // First page of a referrer's referrals in id order
+    Flux<ReferralEdge> findByReferrerCodeOrderByIdAsc(String referrerCode, Limit limit);
+
+    // Next page of a referrer's referrals after the last id seen
+    Flux<ReferralEdge> findByReferrerCodeAndIdGreaterThanOrderByIdAsc(String referrerCode, String id, Limit limit);
+
+    // Fetch referrals made by any of the referrers
+    Flux<ReferralEdge> findByReferrerCodeIn(Collection<String> referrerCodes);
+}
@@ -0,0 +1,18 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.User;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+// Non-blocking counterpart of UserRepository used by the /api/reactive endpoints
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String>, ReactiveUserRepositoryCustom {
+
+    Mono<User> findByReferralCode(String referralCode);
+
+    Flux<User> findByEmailInAndProfileCompletedTrue(Collection<String> emails);
+
+    Mono<User> findByEmail(String email);
+}
@@ -0,0 +1,17 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.User;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveUserRepositoryCustom {
+
+    // All users with only the referral report fields, batchSize documents are fetched per round trip as demand requires
+    Flux<User> findAllForReport(int batchSize);
+
+    // Bumps lastModifiedAt of the user owning referralCode so incremental reports pick up its referrals
+    Mono<Void> touchByReferralCode(String referralCode);
+
+    // Writes only the fields profile completion changes, the same update UserRepository.updateProfiles applies
+    Mono<Void> updateProfile(User user);
+}
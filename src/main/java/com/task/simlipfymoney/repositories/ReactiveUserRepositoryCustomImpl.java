@@ -0,0 +1,37 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactiveUserRepositoryCustomImpl implements ReactiveUserRepositoryCustom {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Flux<User> findAllForReport(int batchSize) {
+        Query query = new Query();
+        query.fields().include(UserRepositoryCustomImpl.REPORT_FIELDS);
+        if (batchSize > 0) {
+            query.cursorBatchSize(batchSize);
+        }
+        return reactiveMongoTemplate.find(query, User.class);
+    }
+
+    @Override
+    public Mono<Void> touchByReferralCode(String referralCode) {
+        return reactiveMongoTemplate.updateFirst(new Query(Criteria.where("referralCode").is(referralCode)),
+                UserRepositoryCustomImpl.touch(), User.class).then();
+    }
+
+    @Override
+    public Mono<Void> updateProfile(User user) {
+        return reactiveMongoTemplate.updateFirst(new Query(Criteria.where("id").is(user.getId())),
+                UserRepositoryCustomImpl.profileUpdate(user), User.class).then();
+    }
+}
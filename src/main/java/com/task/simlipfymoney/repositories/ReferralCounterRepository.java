@@ -0,0 +1,12 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.ReferralCounter;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface ReferralCounterRepository extends MongoRepository<ReferralCounter, String>, ReferralCounterRepositoryCustom {
+
+    List<ReferralCounter> findByCompletedGreaterThanOrderByCompletedDesc(long completed, Limit limit);
+}
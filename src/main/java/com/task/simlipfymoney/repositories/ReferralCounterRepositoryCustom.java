@@ -0,0 +1,17 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.ReferralCounter;
+
+import java.util.Map;
+
+public interface ReferralCounterRepositoryCustom {
+
+    // Atomically adds to the counters of referralCode, creating them when missing, and returns the new totals
+    ReferralCounter increment(String referralCode, long signedUp, long completed);
+
+    // Adds the signups of many referrers in one unordered bulk upsert
+    void incrementSignedUp(Map<String, Long> signedUpByReferralCode);
+
+    // Recomputes every counter from the users and referral_edges collections on the server
+    void rebuildAll();
+}
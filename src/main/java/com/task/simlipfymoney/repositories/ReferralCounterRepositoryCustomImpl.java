@@ -0,0 +1,61 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.ReferralCounter;
+import com.task.simlipfymoney.entities.ReferralEdge;
+import com.task.simlipfymoney.entities.User;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Map;
+
+public class ReferralCounterRepositoryCustomImpl implements ReferralCounterRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public ReferralCounter increment(String referralCode, long signedUp, long completed) {
+        Update update = new Update()
+                .inc("signedUp", signedUp)
+                .inc("completed", completed);
+        return mongoTemplate.findAndModify(new Query(Criteria.where("referralCode").is(referralCode)), update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), ReferralCounter.class);
+    }
+
+    @Override
+    public void incrementSignedUp(Map<String, Long> signedUpByReferralCode) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReferralCounter.class);
+        signedUpByReferralCode.forEach((referralCode, signedUp) ->
+                bulk.upsert(new Query(Criteria.where("referralCode").is(referralCode)), new Update().inc("signedUp", signedUp)));
+        bulk.execute();
+    }
+
+    // Not atomic with concurrent increments, meant to run before the application takes traffic
+    @Override
+    public void rebuildAll() {
+        String counters = mongoTemplate.getCollectionName(ReferralCounter.class);
+        mongoTemplate.remove(new Query(), ReferralCounter.class);
+
+        MergeOperation merge = Aggregation.merge()
+                .intoCollection(counters)
+                .whenMatched(MergeOperation.WhenDocumentsMatch.mergeDocuments())
+                .build();
+
+        mongoTemplate.aggregate(Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("referrerCode").ne(null)),
+                Aggregation.group("referrerCode").count().as("signedUp"),
+                merge), mongoTemplate.getCollectionName(User.class), Document.class);
+
+        mongoTemplate.aggregate(Aggregation.newAggregation(
+                Aggregation.group("referrerCode").count().as("completed"),
+                merge), mongoTemplate.getCollectionName(ReferralEdge.class), Document.class);
+    }
+}
@@ -0,0 +1,20 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.ReferralEdge;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ReferralEdgeRepository extends MongoRepository<ReferralEdge, String> {
+
+    // First page of a referrer's referrals in id order
+    List<ReferralEdge> findByReferrerCodeOrderByIdAsc(String referrerCode, Limit limit);
+
+    // Next page of a referrer's referrals after the last id seen
+    List<ReferralEdge> findByReferrerCodeAndIdGreaterThanOrderByIdAsc(String referrerCode, String id, Limit limit);
+
+    // Fetch referrals made by any of the referrers
+    List<ReferralEdge> findByReferrerCodeIn(Collection<String> referrerCodes);
+}
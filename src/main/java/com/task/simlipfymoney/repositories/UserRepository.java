@@ -6,7 +6,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
 
     // Fetch user using referral code
     Optional<User> findByReferralCode(String referralCode);
@@ -16,7 +16,4 @@ public interface UserRepository extends MongoRepository<User, String> {
 
     // Find user using email
     Optional<User> findByEmail(String email);
-
-    // Find use using email and password
-    Optional<User> findByEmailAndPassword(String email, String password);
 }
\ No newline at end of file
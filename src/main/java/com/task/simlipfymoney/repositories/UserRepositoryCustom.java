@@ -0,0 +1,44 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.User;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface UserRepositoryCustom {
+
+    // Stream all users through a server side cursor, fetching batchSize documents per round trip.
+    // Only the fields written to the referral report are loaded.
+    Stream<User> streamForReport(int batchSize);
+
+    // One page of at most limit report users with ids in [fromId, toId) and after afterId, ordered by id.
+    // A null bound is open. The query is read to the end, so no cursor stays open between pages.
+    List<User> findForReport(Object fromId, Object afterId, Object toId, int limit);
+
+    // Users written at or after the given instant, served by the lastModifiedAt index
+    Stream<User> streamForReportModifiedSince(Instant since, int batchSize);
+
+    // Users who signed up with any of the referrer codes, at most limit of them, without password and timestamps
+    List<User> findReferredBy(Collection<String> referrerCodes, int limit);
+
+    // The subset of codes that belong to a user, in one query reading only the referralCode field
+    Set<String> findExistingReferralCodes(Collection<String> referralCodes);
+
+    // Inserts all users in one unordered bulk write, a failing document does not stop the others.
+    // Returns the error message of every rejected user keyed by its position in users.
+    Map<Integer, String> insertUnordered(List<User> users);
+
+    // Bumps lastModifiedAt of the user owning referralCode so incremental reports pick up its referrals
+    void touchByReferralCode(String referralCode);
+
+    // Sets the profile fields and password of every user by id and touches the referrers, in one ordered bulk write.
+    // Only those fields are written, a later entry for the same user wins.
+    void updateProfiles(List<User> users, Collection<String> touchedReferralCodes);
+
+    // Sampled split points that cut the collection into roughly equal id ranges, in ascending order
+    List<Object> findIdBoundaries(int partitions);
+}
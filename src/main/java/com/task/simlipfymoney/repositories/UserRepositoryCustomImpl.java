@@ -0,0 +1,169 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.User;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    // Columns of the referral report read from users. Mongo returns _id with them, which the export ranges page on.
+    // Everything else, the password included, stays on the server.
+    static final String[] REPORT_FIELDS = {
+            "name", "email", "referralCode", "referrerCode", "profileCompleted",
+            "phoneNumber", "address"
+    };
+
+    static final String[] DOWNLINE_FIELDS = {
+            "name", "email", "referralCode", "referrerCode", "profileCompleted"
+    };
+
+    // Ids sampled per requested partition when estimating range boundaries
+    private static final int SAMPLES_PER_PARTITION = 20;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public Stream<User> streamForReport(int batchSize) {
+        return mongoTemplate.stream(reportQuery(new Query(), batchSize), User.class);
+    }
+
+    @Override
+    public List<User> findForReport(Object fromId, Object afterId, Object toId, int limit) {
+        Criteria criteria = Criteria.where("id");
+        if (afterId != null) {
+            criteria = criteria.gt(afterId);
+        } else if (fromId != null) {
+            criteria = criteria.gte(fromId);
+        }
+        if (toId != null) {
+            criteria = criteria.lt(toId);
+        }
+        Query query = afterId == null && fromId == null && toId == null ? new Query() : new Query(criteria);
+        query.with(Sort.by(Sort.Direction.ASC, "id")).limit(limit);
+        return mongoTemplate.find(reportQuery(query, limit), User.class);
+    }
+
+    @Override
+    public Stream<User> streamForReportModifiedSince(Instant since, int batchSize) {
+        Query query = new Query(Criteria.where("lastModifiedAt").gte(since));
+        query.with(Sort.by(Sort.Direction.ASC, "lastModifiedAt"));
+        return mongoTemplate.stream(reportQuery(query, batchSize), User.class);
+    }
+
+    @Override
+    public List<User> findReferredBy(Collection<String> referrerCodes, int limit) {
+        Query query = new Query(Criteria.where("referrerCode").in(referrerCodes)).limit(limit);
+        query.fields().include(DOWNLINE_FIELDS);
+        return mongoTemplate.find(query, User.class);
+    }
+
+    @Override
+    public Set<String> findExistingReferralCodes(Collection<String> referralCodes) {
+        Query query = new Query(Criteria.where("referralCode").in(referralCodes));
+        query.fields().include("referralCode");
+        return mongoTemplate.find(query, User.class).stream()
+                .map(User::getReferralCode)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Map<Integer, String> insertUnordered(List<User> users) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class).insert(users).execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            return e.getErrors().stream()
+                    .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage));
+        }
+    }
+
+    @Override
+    public void touchByReferralCode(String referralCode) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("referralCode").is(referralCode)), touch(), User.class);
+    }
+
+    @Override
+    public void updateProfiles(List<User> users, Collection<String> touchedReferralCodes) {
+        if (users.isEmpty() && touchedReferralCodes.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, User.class);
+        for (User user : users) {
+            bulk.updateOne(new Query(Criteria.where("id").is(user.getId())), profileUpdate(user));
+        }
+        for (String referralCode : touchedReferralCodes) {
+            bulk.updateOne(new Query(Criteria.where("referralCode").is(referralCode)), touch());
+        }
+        bulk.execute();
+    }
+
+    // Auditing does not run for partial updates. lastModifiedAt is still taken from the application clock, as auditing
+    // does on insert, so the report watermark and every write to the field use the same clock.
+    static Update touch() {
+        return new Update().set("lastModifiedAt", Instant.now().truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    // The fields profile completion may change, shared with the reactive repository
+    static Update profileUpdate(User user) {
+        return touch()
+                .set("name", user.getName())
+                .set("phoneNumber", user.getPhoneNumber())
+                .set("address", user.getAddress())
+                .set("profileCompleted", user.isProfileCompleted())
+                .set("password", user.getPassword());
+    }
+
+    @Override
+    public List<Object> findIdBoundaries(int partitions) {
+        List<Object> boundaries = new ArrayList<>();
+        if (partitions < 2) {
+            return boundaries;
+        }
+
+        TypedAggregation<User> aggregation = Aggregation.newAggregation(User.class,
+                Aggregation.sample((long) partitions * SAMPLES_PER_PARTITION),
+                Aggregation.project("id"),
+                Aggregation.sort(Sort.Direction.ASC, "id"));
+        List<Document> samples = mongoTemplate.aggregate(aggregation, Document.class).getMappedResults();
+        if (samples.isEmpty()) {
+            return boundaries;
+        }
+
+        for (int i = 1; i < partitions; i++) {
+            Object id = samples.get(i * samples.size() / partitions).get("_id");
+            if (boundaries.isEmpty() || !boundaries.get(boundaries.size() - 1).equals(id)) {
+                boundaries.add(id);
+            }
+        }
+        return boundaries;
+    }
+
+    private Query reportQuery(Query query, int batchSize) {
+        query.fields().include(REPORT_FIELDS);
+        if (batchSize > 0) {
+            query.cursorBatchSize(batchSize);
+        }
+        return query;
+    }
+}
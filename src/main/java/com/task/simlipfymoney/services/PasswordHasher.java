@@ -0,0 +1,168 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.exceptions.PasswordHashingUnavailableException;
+import com.task.simlipfymoney.exceptions.PasswordTooLongException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Hashes and verifies passwords on the dedicated password hash executor, never on the caller's thread.
+// Work the executor cannot queue fails fast with PasswordHashingUnavailableException and is counted.
+@Component
+public class PasswordHasher implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+
+    // BCrypt reads at most 72 bytes of a password, the encoder rejects anything longer
+    public static final int MAX_PASSWORD_BYTES = 72;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    @Qualifier("passwordHashExecutor")
+    private ThreadPoolExecutor passwordHashExecutor;
+
+    // How long a blocking caller waits for a queued hash before giving up
+    @Value("${password.hashing.timeout:PT5S}")
+    private Duration timeout;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    // Hash of a random password at the configured cost, verified against when there is no account to check
+    private volatile String dummyHash;
+
+    public String hash(String rawPassword) {
+        return await(hashAsync(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String storedPassword) {
+        return await(matchesAsync(rawPassword, storedPassword));
+    }
+
+    public CompletableFuture<String> hashAsync(String rawPassword) {
+        if (isTooLong(rawPassword)) {
+            return CompletableFuture.failedFuture(new PasswordTooLongException(
+                    "Password is longer than " + MAX_PASSWORD_BYTES + " bytes."));
+        }
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    // A null storedPassword stands for an unknown account. It is still verified against a dummy hash and never matches,
+    // so a login for an email that does not exist takes as long as one with a wrong password.
+    // A password too long to have been hashed never matches, whether or not the account exists.
+    public CompletableFuture<Boolean> matchesAsync(String rawPassword, String storedPassword) {
+        if (rawPassword == null || isTooLong(rawPassword)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (storedPassword == null) {
+            return submit(() -> {
+                passwordEncoder.matches(rawPassword, dummyHash());
+                return false;
+            });
+        }
+        if (!isHashed(storedPassword)) {
+            // Stored before hashing was introduced, compared in constant time without using the executor
+            return CompletableFuture.completedFuture(MessageDigest.isEqual(
+                    rawPassword.getBytes(StandardCharsets.UTF_8), storedPassword.getBytes(StandardCharsets.UTF_8)));
+        }
+        return submit(() -> passwordEncoder.matches(rawPassword, storedPassword));
+    }
+
+    // Plain text passwords are replaced by a hash on the next successful login
+    public boolean needsUpgrade(String storedPassword) {
+        return storedPassword != null && !isHashed(storedPassword);
+    }
+
+    // Hashes in windows of the pool size so a large batch never fills the queue shared with logins
+    public List<String> hashAll(List<String> rawPasswords) {
+        int window = passwordHashExecutor.getMaximumPoolSize();
+        List<String> hashes = new ArrayList<>(rawPasswords.size());
+        for (int from = 0; from < rawPasswords.size(); from += window) {
+            List<CompletableFuture<String>> futures = rawPasswords.subList(from, Math.min(from + window, rawPasswords.size()))
+                    .stream()
+                    .map(this::hashAsync)
+                    .toList();
+            futures.forEach(future -> hashes.add(await(future)));
+        }
+        return hashes;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("password.hashing.rejected", rejected, AtomicLong::get)
+                .description("Hash and verify requests rejected because the hash executor was saturated")
+                .register(registry);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, passwordHashExecutor);
+        } catch (RejectedExecutionException e) {
+            long total = rejected.incrementAndGet();
+            logger.warn("Password hashing queue is full, rejected {} requests so far", total);
+            return CompletableFuture.failedFuture(new PasswordHashingUnavailableException("Password hashing queue is full."));
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            logger.warn("Timed out after {} waiting for password hashing", timeout);
+            throw new PasswordHashingUnavailableException("Timed out waiting for password hashing.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Interrupted while waiting for password hashing.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private String dummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode(UUID.randomUUID().toString());
+            dummyHash = hash;
+        }
+        return hash;
+    }
+
+    private static boolean isTooLong(String rawPassword) {
+        return rawPassword != null && rawPassword.getBytes(StandardCharsets.UTF_8).length > MAX_PASSWORD_BYTES;
+    }
+
+    private static boolean isHashed(String storedPassword) {
+        return storedPassword.startsWith("$2a$") || storedPassword.startsWith("$2b$") || storedPassword.startsWith("$2y$");
+    }
+}
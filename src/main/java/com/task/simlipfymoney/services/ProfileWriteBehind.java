@@ -0,0 +1,192 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.repositories.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Writes completed profiles with a single bulk write of the user and its referrer.
+// When enabled, writes from concurrent requests are queued and flushed together by one thread, a flush starts
+// when max-batch writes are waiting or flush-interval after the first one. A caller returns only once the bulk write
+// holding its update is acknowledged. A full queue is not an error, the caller writes its own update instead.
+@Component
+public class ProfileWriteBehind implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileWriteBehind.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${profile.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${profile.write-behind.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${profile.write-behind.max-batch:200}")
+    private int maxBatch;
+
+    // How long the first queued write waits for others to join its flush
+    @Value("${profile.write-behind.flush-interval:PT0.02S}")
+    private Duration flushInterval;
+
+    // How long a caller waits for its flush to be acknowledged before failing the request
+    @Value("${profile.write-behind.timeout:PT5S}")
+    private Duration timeout;
+
+    private BlockingQueue<PendingWrite> queue;
+
+    private Thread flusher;
+
+    private volatile boolean running;
+
+    private final AtomicLong overflowed = new AtomicLong();
+
+    private DistributionSummary batchSizes;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        flusher = Thread.ofPlatform().name("profile-write-behind").daemon().start(this::run);
+        logger.info("Profile write-behind enabled, flushing up to {} writes every {}.", maxBatch, flushInterval);
+    }
+
+    // Flushes whatever is still queued before the repository goes away
+    @PreDestroy
+    void close() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        flusher.join(timeout.toMillis());
+        List<PendingWrite> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    // Writes the user's profile and touches the referrer, null when there is no referral to record
+    public void write(User user, String touchedReferralCode) {
+        Set<String> touched = touchedReferralCode != null ? Set.of(touchedReferralCode) : Set.of();
+        if (!enabled) {
+            userRepository.updateProfiles(List.of(user), touched);
+            return;
+        }
+        PendingWrite pending = new PendingWrite(user, touchedReferralCode, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            long total = overflowed.incrementAndGet();
+            logger.warn("Profile write queue is full, written directly {} times so far", total);
+            userRepository.updateProfiles(List.of(user), touched);
+            return;
+        }
+        await(pending.acknowledged());
+    }
+
+    public long getOverflowedCount() {
+        return overflowed.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        batchSizes = DistributionSummary.builder("profile.write-behind.batch.size")
+                .description("Profile writes combined into one bulk write")
+                .register(registry);
+        FunctionCounter.builder("profile.write-behind.overflowed", overflowed, AtomicLong::get)
+                .description("Profile writes done by the caller because the write-behind queue was full")
+                .register(registry);
+        Gauge.builder("profile.write-behind.queued", this, writeBehind -> writeBehind.queue != null ? writeBehind.queue.size() : 0)
+                .description("Profile writes waiting for the next flush")
+                .register(registry);
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < maxBatch) {
+                    PendingWrite next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutting down, close flushes what is left in the queue
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // One bulk write for the whole batch, its outcome is handed to every caller in it
+    private void flush(List<PendingWrite> batch) {
+        List<User> users = batch.stream().map(PendingWrite::user).toList();
+        Set<String> touched = new LinkedHashSet<>();
+        batch.stream().map(PendingWrite::touchedReferralCode).filter(Objects::nonNull).forEach(touched::add);
+        try {
+            userRepository.updateProfiles(users, touched);
+            batch.forEach(pending -> pending.acknowledged().complete(null));
+        } catch (RuntimeException e) {
+            logger.error("Failed to flush {} profile writes: {}", batch.size(), e.getMessage());
+            batch.forEach(pending -> pending.acknowledged().completeExceptionally(e));
+        }
+        if (batchSizes != null) {
+            batchSizes.record(batch.size());
+        }
+    }
+
+    private void await(CompletableFuture<Void> acknowledged) {
+        try {
+            acknowledged.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Timed out after {} waiting for a profile write to be flushed", timeout);
+            throw new DataAccessResourceFailureException("Timed out waiting for the profile write to be acknowledged.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while waiting for the profile write to be acknowledged.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private record PendingWrite(User user, String touchedReferralCode, CompletableFuture<Void> acknowledged) {
+    }
+}
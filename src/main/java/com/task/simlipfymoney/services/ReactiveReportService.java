@@ -0,0 +1,69 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.entities.ReferralEdge;
+import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.repositories.ReactiveReferralEdgeRepository;
+import com.task.simlipfymoney.repositories.ReactiveUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+// Referral report as a stream of CSV text. Users are pulled from the cursor only as fast as the client consumes
+// the output, so a slow download holds no more than one chunk of users in memory.
+@Service
+public class ReactiveReportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveReportService.class);
+
+    @Autowired
+    private ReactiveUserRepository reactiveUserRepository;
+
+    @Autowired
+    private ReactiveReferralEdgeRepository reactiveReferralEdgeRepository;
+
+    @Value("${report.export.batch-size:500}")
+    private int batchSize;
+
+    // The CSV header followed by one element per chunk of users, each chunk costs one referral lookup.
+    // Rows are emitted per chunk rather than per line so the writer flushes once per chunk.
+    public Flux<String> generateCsvReport() {
+        int chunkSize = batchSize > 0 ? batchSize : ReportService.DEFAULT_CHUNK_SIZE;
+        return Flux.concat(
+                        Mono.just(ReportService.CSV_HEADER),
+                        reactiveUserRepository.findAllForReport(batchSize)
+                                .buffer(chunkSize)
+                                .concatMap(this::formatChunk, 1))
+                .doOnSubscribe(subscription -> logger.info("Starting reactive CSV report generation..."))
+                .doOnComplete(() -> logger.info("Reactive CSV report sent successfully."))
+                .doOnError(e -> logger.error("Error generating reactive CSV report: {}", e.getMessage(), e));
+    }
+
+    private Mono<String> formatChunk(List<User> chunk) {
+        List<String> referralCodes = chunk.stream()
+                .map(User::getReferralCode)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        Mono<Map<String, Collection<String>>> referredByCode = referralCodes.isEmpty() ? Mono.just(Map.of())
+                : reactiveReferralEdgeRepository.findByReferrerCodeIn(referralCodes)
+                .collectMultimap(ReferralEdge::getReferrerCode, ReferralEdge::getReferredEmail);
+
+        return referredByCode.map(byCode -> {
+            StringBuilder rows = new StringBuilder();
+            for (User user : chunk) {
+                Collection<String> referredUsers = user.getReferralCode() != null ? byCode.get(user.getReferralCode()) : null;
+                rows.append(ReportService.formatRow(user, referredUsers != null ? List.copyOf(referredUsers) : List.of()));
+            }
+            return rows.toString();
+        });
+    }
+}
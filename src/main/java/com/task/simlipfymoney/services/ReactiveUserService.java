@@ -0,0 +1,220 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.dtos.ProfileCompletionRequest;
+import com.task.simlipfymoney.dtos.ReferralCountResponse;
+import com.task.simlipfymoney.dtos.ReferredUsersPage;
+import com.task.simlipfymoney.dtos.SignupRequest;
+import com.task.simlipfymoney.dtos.UserResponse;
+import com.task.simlipfymoney.entities.ReferralEdge;
+import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.exceptions.DuplicateEmailException;
+import com.task.simlipfymoney.exceptions.InvalidReferralCodeException;
+import com.task.simlipfymoney.exceptions.ReferralCodeAllocationException;
+import com.task.simlipfymoney.exceptions.UserNotFoundException;
+import com.task.simlipfymoney.repositories.ReactiveReferralCounterRepository;
+import com.task.simlipfymoney.repositories.ReactiveReferralEdgeRepository;
+import com.task.simlipfymoney.repositories.ReactiveUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Non-blocking counterpart of UserService, same rules and responses on top of the reactive repositories
+@Service
+public class ReactiveUserService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserService.class);
+
+    @Autowired
+    private ReactiveUserRepository reactiveUserRepository;
+
+    @Autowired
+    private ReactiveReferralEdgeRepository reactiveReferralEdgeRepository;
+
+    @Autowired
+    private ReactiveReferralCounterRepository reactiveReferralCounterRepository;
+
+    @Autowired
+    private ReferralCodeAllocator referralCodeAllocator;
+
+    @Autowired
+    private ReferrerCache referrerCache;
+
+    @Autowired
+    private ReferralLeaderboard referralLeaderboard;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Value("${referral.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${referral.page.max-size:500}")
+    private int maxPageSize;
+
+    public Mono<UserResponse> signup(SignupRequest request) {
+        logger.info("Attempting to sign up user with email: {}", request.getEmail());
+
+        User user = UserService.newUser(request);
+        Mono<User> validated = request.getReferrerCode() == null ? Mono.just(user) : reactiveUserRepository.findByReferralCode(request.getReferrerCode())
+                .switchIfEmpty(Mono.error(() -> {
+                    logger.error("Invalid referral code: {}", request.getReferrerCode());
+                    return new InvalidReferralCodeException("Invalid referral code provided.");
+                }))
+                .map(referrer -> {
+                    user.setReferrerCode(request.getReferrerCode());
+                    return user;
+                });
+
+        return validated
+                .flatMap(pending -> Mono.fromFuture(() -> passwordHasher.hashAsync(request.getPassword()))
+                        .map(hash -> {
+                            pending.setPassword(hash);
+                            return pending;
+                        }))
+                .flatMap(this::insertWithFreshReferralCode)
+                .flatMap(saved -> saved.getReferrerCode() == null ? Mono.just(saved)
+                        : incrementReferralCounter(saved.getReferrerCode(), 1, 0).thenReturn(saved))
+                .doOnNext(saved -> logger.info("User signed up successfully with email: {}", saved.getEmail()))
+                .map(UserService::mapToUserResponse);
+    }
+
+    public Mono<UserResponse> completeProfile(ProfileCompletionRequest request) {
+        logger.info("Attempting to complete profile for user with email: {}", request.getEmail());
+
+        // An unknown email is verified against a dummy hash, so the response time does not tell which accounts exist
+        return reactiveUserRepository.findByEmail(request.getEmail())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .filterWhen(found -> Mono.fromFuture(() -> passwordHasher.matchesAsync(request.getPassword(), found.map(User::getPassword).orElse(null))))
+                .flatMap(Mono::justOrEmpty)
+                .switchIfEmpty(Mono.error(() -> {
+                    logger.error("Profile completion failed: Invalid email or password");
+                    return new UserNotFoundException("Invalid email or password.");
+                }))
+                .flatMap(user -> !passwordHasher.needsUpgrade(user.getPassword()) ? Mono.just(user)
+                        : Mono.fromFuture(() -> passwordHasher.hashAsync(request.getPassword())).map(hash -> {
+                            user.setPassword(hash);
+                            return user;
+                        }))
+                .flatMap(user -> {
+                    Mono<Void> referral = UserService.applyProfile(user, request) && user.getReferrerCode() != null
+                            ? applyReferral(user) : Mono.empty();
+                    // Only the changed fields, a concurrent write to the rest of the document is not overwritten
+                    return referral.then(reactiveUserRepository.updateProfile(user)).thenReturn(user);
+                })
+                .doOnNext(saved -> referrerCache.invalidate(saved.getReferralCode()))
+                .map(UserService::mapToUserResponse);
+    }
+
+    // One page of completed referrals in the order they were recorded, cursor is the nextCursor of the previous page
+    public Mono<ReferredUsersPage> getReferredUsers(String referralCode, String cursor, Integer limit) {
+        logger.info("Fetching referred users for referral code: {}", referralCode);
+
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        // One extra edge tells whether another page follows
+        Limit fetch = Limit.of(pageSize + 1);
+
+        return reactiveUserRepository.findByReferralCode(referralCode)
+                .switchIfEmpty(Mono.error(() -> {
+                    logger.error("No user found with referral code: {}", referralCode);
+                    return new InvalidReferralCodeException("No user found with referral code: " + referralCode);
+                }))
+                .flatMap(referrer -> (cursor == null
+                        ? reactiveReferralEdgeRepository.findByReferrerCodeOrderByIdAsc(referralCode, fetch)
+                        : reactiveReferralEdgeRepository.findByReferrerCodeAndIdGreaterThanOrderByIdAsc(referralCode, UserService.decodeCursor(cursor), fetch))
+                        .collectList())
+                .flatMap(edges -> {
+                    String nextCursor = edges.size() > pageSize ? UserService.encodeCursor(edges.get(pageSize - 1).getId()) : null;
+                    List<String> referredEmails = edges.stream()
+                            .limit(pageSize)
+                            .map(ReferralEdge::getReferredEmail)
+                            .collect(Collectors.toList());
+                    if (referredEmails.isEmpty()) {
+                        logger.warn("No referred user emails found for referral code: {}", referralCode);
+                        return Mono.just(new ReferredUsersPage(List.of(), null));
+                    }
+
+                    return reactiveUserRepository.findByEmailInAndProfileCompletedTrue(referredEmails)
+                            .collectMap(User::getEmail)
+                            .map(usersByEmail -> new ReferredUsersPage(referredEmails.stream()
+                                    .map(usersByEmail::get)
+                                    .filter(Objects::nonNull)
+                                    .map(UserService::mapToUserResponse)
+                                    .collect(Collectors.toList()), nextCursor));
+                });
+    }
+
+    // Totals of a referrer, a single read of its counter document by id
+    public Mono<ReferralCountResponse> getReferralCount(String referralCode) {
+        return reactiveReferralCounterRepository.findById(referralCode)
+                .map(counter -> new ReferralCountResponse(referralCode, counter.getSignedUp(), counter.getCompleted()))
+                // No referral yet, still reject unknown codes
+                .switchIfEmpty(Mono.defer(() -> reactiveUserRepository.findByReferralCode(referralCode)
+                        .map(referrer -> new ReferralCountResponse(referralCode, 0, 0))
+                        .switchIfEmpty(Mono.error(() -> {
+                            logger.error("No user found with referral code: {}", referralCode);
+                            return new InvalidReferralCodeException("No user found with referral code: " + referralCode);
+                        }))));
+    }
+
+    // The unique indexes reject duplicate emails and colliding referral codes, a collision retries with a new code
+    private Mono<User> insertWithFreshReferralCode(User user) {
+        return Mono.defer(() -> {
+                    user.setReferralCode(referralCodeAllocator.allocate());
+                    return reactiveUserRepository.insert(user);
+                })
+                .retryWhen(Retry.max(ReferralCodeAllocator.MAX_ATTEMPTS - 1)
+                        .filter(e -> e instanceof DuplicateKeyException duplicate && UserService.isDuplicateKeyOn(duplicate, "referralCode"))
+                        .doBeforeRetry(signal -> logger.warn("Referral code {} already taken, retrying", user.getReferralCode()))
+                        .onRetryExhaustedThrow((spec, signal) -> {
+                            logger.error("Signup failed: no free referral code after {} attempts", ReferralCodeAllocator.MAX_ATTEMPTS);
+                            return new ReferralCodeAllocationException("Could not allocate a unique referral code.");
+                        }))
+                .onErrorMap(e -> e instanceof DuplicateKeyException duplicate && UserService.isDuplicateKeyOn(duplicate, "email"), e -> {
+                    logger.error("Signup failed: Email {} is already in use", user.getEmail());
+                    return new DuplicateEmailException("Email is already in use. Please use a different email.");
+                });
+    }
+
+    // Records the referral as its own edge document, the unique (referrerCode, referredEmail) index makes it idempotent
+    private Mono<Void> applyReferral(User user) {
+        ReferralEdge edge = new ReferralEdge();
+        edge.setReferrerCode(user.getReferrerCode());
+        edge.setReferredEmail(user.getEmail());
+        return reactiveReferralEdgeRepository.insert(edge)
+                .onErrorResume(DuplicateKeyException.class, e -> {
+                    logger.warn("Referral of {} by {} already recorded", user.getEmail(), user.getReferrerCode());
+                    return Mono.empty();
+                })
+                .flatMap(saved -> reactiveUserRepository.touchByReferralCode(user.getReferrerCode())
+                        .then(incrementReferralCounter(user.getReferrerCode(), 0, 1))
+                        .doOnSuccess(done -> logger.info("Referral applied: {} referred by {}", user.getEmail(), user.getReferrerCode())));
+    }
+
+    // Counters are derived data, a failed increment is logged rather than failing a write that already succeeded
+    private Mono<Void> incrementReferralCounter(String referralCode, long signedUp, long completed) {
+        return reactiveReferralCounterRepository.increment(referralCode, signedUp, completed)
+                .doOnNext(counter -> {
+                    if (completed > 0) {
+                        referralLeaderboard.record(counter);
+                    }
+                })
+                .onErrorResume(DataAccessException.class, e -> {
+                    logger.error("Failed to update referral counters for {}: {}", referralCode, e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+}
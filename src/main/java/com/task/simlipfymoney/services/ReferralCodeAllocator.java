@@ -0,0 +1,57 @@
+package com.task.simlipfymoney.services;
+
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Allocates 6 character alphanumeric referral codes. Uniqueness across the collection is enforced by
+// the unique referralCode index, callers retry on a duplicate key, codes handed out in one batch are distinct.
+@Component
+public class ReferralCodeAllocator {
+
+    private static final char[] ALPHANUMERIC_CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+
+    private static final int CODE_LENGTH = 6;
+
+    // 36^6 possible codes
+    private static final long CODE_SPACE = 2_176_782_336L;
+
+    // Insert attempts before giving up on a colliding code, each attempt draws a fresh code
+    public static final int MAX_ATTEMPTS = 5;
+
+    // SecureRandom is thread safe but serialises callers, striping spreads threads over a few long lived instances
+    private final SecureRandom[] sources;
+
+    public ReferralCodeAllocator() {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2);
+        sources = new SecureRandom[stripes];
+        for (int i = 0; i < stripes; i++) {
+            sources[i] = new SecureRandom();
+        }
+    }
+
+    public String allocate() {
+        long value = source().nextLong(CODE_SPACE);
+        char[] code = new char[CODE_LENGTH];
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            code[i] = ALPHANUMERIC_CHARACTERS[(int) (value % ALPHANUMERIC_CHARACTERS.length)];
+            value /= ALPHANUMERIC_CHARACTERS.length;
+        }
+        return new String(code);
+    }
+
+    // Distinct codes for a bulk insert, in allocation order
+    public Set<String> allocate(int count) {
+        Set<String> codes = new LinkedHashSet<>(count * 2);
+        while (codes.size() < count) {
+            codes.add(allocate());
+        }
+        return codes;
+    }
+
+    private SecureRandom source() {
+        return sources[(int) (Thread.currentThread().threadId() & (sources.length - 1))];
+    }
+}
@@ -0,0 +1,30 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.repositories.ReferralCounterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// Backfills referral_counters for data written before the counters existed
+@Component
+@Order(2)
+@ConditionalOnProperty(name = "referral.counters.rebuild-on-startup", havingValue = "true")
+public class ReferralCounterRebuild implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferralCounterRebuild.class);
+
+    @Autowired
+    private ReferralCounterRepository referralCounterRepository;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        logger.info("Rebuilding referral counters...");
+        referralCounterRepository.rebuildAll();
+        logger.info("Referral counters rebuilt: {} referrers.", referralCounterRepository.count());
+    }
+}
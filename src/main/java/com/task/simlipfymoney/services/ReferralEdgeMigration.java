@@ -0,0 +1,68 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.entities.ReferralEdge;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+// One-off move of the legacy embedded users.referredUsers arrays into referral_edges.
+// Idempotent, edges are upserted and the array is only removed once its edges are written.
+@Component
+@Order(1)
+@ConditionalOnProperty(name = "referral.edges.migrate-on-startup", havingValue = "true")
+public class ReferralEdgeMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferralEdgeMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        logger.info("Migrating embedded referredUsers arrays to referral edges...");
+
+        Query query = new Query(Criteria.where("referredUsers").exists(true));
+        query.fields().include("referralCode", "referredUsers");
+
+        long migratedUsers = 0;
+        long migratedEdges = 0;
+        try (Stream<Document> users = mongoTemplate.stream(query, Document.class, "users")) {
+            for (Document user : (Iterable<Document>) users::iterator) {
+                String referralCode = user.getString("referralCode");
+                List<String> referredEmails = user.getList("referredUsers", String.class, List.of());
+
+                if (referralCode != null && !referredEmails.isEmpty()) {
+                    BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReferralEdge.class);
+                    Instant now = Instant.now();
+                    for (String email : referredEmails) {
+                        bulk.upsert(new Query(Criteria.where("referrerCode").is(referralCode).and("referredEmail").is(email)),
+                                new Update().setOnInsert("createdAt", now));
+                    }
+                    bulk.execute();
+                    migratedEdges += referredEmails.size();
+                }
+
+                mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(user.get("_id"))),
+                        new Update().unset("referredUsers"), "users");
+                migratedUsers++;
+            }
+        }
+
+        logger.info("Referral edge migration finished: {} users, {} edges.", migratedUsers, migratedEdges);
+    }
+}
@@ -0,0 +1,151 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.dtos.LeaderboardEntry;
+import com.task.simlipfymoney.entities.ReferralCounter;
+import com.task.simlipfymoney.repositories.ReferralCounterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Top referrers by completed referrals, kept in memory and updated from every counter increment.
+// Only the best capacity referrers are held. Completed counts never decrease, so an evicted referrer
+// comes back through the increment that lifts it above the cutoff. Increments made by other instances
+// are picked up by the periodic refresh from referral_counters.
+@Component
+public class ReferralLeaderboard {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferralLeaderboard.class);
+
+    private static final Comparator<Score> RANKING = Comparator.comparingLong(Score::completed).reversed()
+            .thenComparing(Score::referralCode);
+
+    @Autowired
+    private ReferralCounterRepository referralCounterRepository;
+
+    @Value("${referral.leaderboard.capacity:1000}")
+    private int capacity;
+
+    // How long top() waits before seeding again after a failed attempt, so a Mongo outage is not hit on every request
+    @Value("${referral.leaderboard.seed-retry-interval:PT10S}")
+    private Duration seedRetryInterval;
+
+    // Changed only while holding the monitor, readers use the published snapshot
+    private Ranking ranking;
+
+    // Immutable copy of ranking, replaced whole after every change so top() never sees a half applied update
+    private volatile List<Score> snapshot = List.of();
+
+    private volatile boolean seeded;
+
+    // When top() may next try to seed, claimed by one caller at a time
+    private final AtomicLong nextSeedAttempt = new AtomicLong(System.nanoTime());
+
+    // The first limit referrers, seeded from referral_counters on first use
+    public List<LeaderboardEntry> top(int limit) {
+        if (!seeded) {
+            long now = System.nanoTime();
+            long next = nextSeedAttempt.get();
+            if (now - next >= 0 && nextSeedAttempt.compareAndSet(next, now + seedRetryInterval.toNanos())) {
+                refresh();
+            }
+        }
+        List<Score> current = snapshot;
+        List<LeaderboardEntry> entries = new ArrayList<>(Math.min(limit, current.size()));
+        for (Score score : current) {
+            if (entries.size() == limit) {
+                break;
+            }
+            entries.add(new LeaderboardEntry(entries.size() + 1, score.referralCode(), score.completed(), score.signedUp()));
+        }
+        return entries;
+    }
+
+    // Applies the totals returned by an increment. Concurrent increments may arrive out of order, so lower totals are ignored.
+    public synchronized void record(ReferralCounter counter) {
+        if (counter == null || counter.getCompleted() <= 0) {
+            return;
+        }
+        if (ranking == null) {
+            ranking = new Ranking(capacity);
+        }
+        Score current = ranking.scores.get(counter.getReferralCode());
+        if (current != null && current.completed() > counter.getCompleted()) {
+            return;
+        }
+        ranking.put(new Score(counter.getReferralCode(), counter.getCompleted(),
+                current != null ? Math.max(current.signedUp(), counter.getSignedUp()) : counter.getSignedUp()));
+        snapshot = List.copyOf(ranking.order);
+    }
+
+    // Replaces the in-memory ranking with the current top of referral_counters. The new ranking is built aside and
+    // swapped in whole, keeping the higher totals recorded while it was read.
+    @Scheduled(fixedDelayString = "${referral.leaderboard.refresh-interval:PT1M}", initialDelayString = "${referral.leaderboard.refresh-interval:PT1M}")
+    public void refresh() {
+        List<ReferralCounter> counters;
+        try {
+            counters = referralCounterRepository.findByCompletedGreaterThanOrderByCompletedDesc(0, Limit.of(capacity));
+        } catch (DataAccessException e) {
+            logger.error("Failed to refresh referral leaderboard: {}", e.getMessage());
+            return;
+        }
+        Ranking refreshed = new Ranking(capacity);
+        counters.forEach(counter -> refreshed.put(new Score(counter.getReferralCode(), counter.getCompleted(), counter.getSignedUp())));
+        synchronized (this) {
+            if (ranking != null) {
+                ranking.scores.values().forEach(score -> {
+                    Score read = refreshed.scores.get(score.referralCode());
+                    if (read == null || read.completed() < score.completed()) {
+                        refreshed.put(score);
+                    }
+                });
+            }
+            ranking = refreshed;
+            snapshot = List.copyOf(refreshed.order);
+            seeded = true;
+        }
+        logger.info("Referral leaderboard refreshed with {} referrers.", counters.size());
+    }
+
+    // The best capacity scores, in ranking order and by referral code
+    private static final class Ranking {
+
+        private final int capacity;
+
+        private final TreeSet<Score> order = new TreeSet<>(RANKING);
+
+        private final Map<String, Score> scores = new HashMap<>();
+
+        private Ranking(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private void put(Score score) {
+            Score previous = scores.put(score.referralCode(), score);
+            if (previous != null) {
+                order.remove(previous);
+            }
+            order.add(score);
+            if (scores.size() > capacity) {
+                Score evicted = order.pollLast();
+                scores.remove(evicted.referralCode());
+            }
+        }
+    }
+
+    private record Score(String referralCode, long completed, long signedUp) {
+    }
+}
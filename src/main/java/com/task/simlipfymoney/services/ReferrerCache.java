@@ -0,0 +1,86 @@
+package com.task.simlipfymoney.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// In-process cache of referrers keyed by referral code. Unknown codes are not cached.
+// Writers must invalidate the code after changing the document, the ttl bounds staleness across instances.
+@Component
+public class ReferrerCache implements MeterBinder {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${referrer.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${referrer.cache.ttl:PT5M}")
+    private Duration ttl;
+
+    private AsyncCache<String, User> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+    }
+
+    // Concurrent misses on the same code share a single repository call. Only an empty future is placed inside the map's
+    // compute, the caller that placed it loads outside of it, so a virtual thread is never pinned for the repository call.
+    // A future completed with null or failed is dropped by the cache.
+    public Optional<User> findByReferralCode(String referralCode) {
+        CompletableFuture<User> load = new CompletableFuture<>();
+        CompletableFuture<User> cached = cache.get(referralCode, (code, executor) -> load);
+        if (cached == load) {
+            try {
+                load.complete(userRepository.findByReferralCode(referralCode).orElse(null));
+            } catch (RuntimeException e) {
+                load.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return Optional.ofNullable(cached.join());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    public void invalidate(String referralCode) {
+        if (referralCode != null) {
+            cache.synchronous().invalidate(referralCode);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    // Hit, miss, eviction and size meters tagged cache=referrer
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "referrer");
+    }
+}
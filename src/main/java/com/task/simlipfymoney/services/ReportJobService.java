@@ -0,0 +1,207 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.dtos.ReportJobResponse;
+import com.task.simlipfymoney.exceptions.ReportJobNotFoundException;
+import com.task.simlipfymoney.exceptions.ReportJobNotReadyException;
+import com.task.simlipfymoney.exceptions.TooManyReportJobsException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+@Service
+public class ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    @Qualifier("reportJobExecutor")
+    private ExecutorService reportJobExecutor;
+
+    // Directory holding finished report files until they expire
+    @Value("${report.jobs.dir:${java.io.tmpdir}/referral-reports}")
+    private Path jobsDir;
+
+    @Value("${report.jobs.max-concurrent:2}")
+    private int maxConcurrentJobs;
+
+    // How long a finished report stays downloadable
+    @Value("${report.jobs.ttl:PT1H}")
+    private Duration ttl;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    private Semaphore permits;
+
+    @PostConstruct
+    void init() throws IOException {
+        permits = new Semaphore(maxConcurrentJobs);
+        Files.createDirectories(jobsDir);
+    }
+
+    public ReportJobResponse startJob() {
+        if (!permits.tryAcquire()) {
+            logger.error("Report job rejected: {} jobs already running", maxConcurrentJobs);
+            throw new TooManyReportJobsException("Limit of " + maxConcurrentJobs + " concurrent report jobs reached.");
+        }
+
+        ReportJob job = new ReportJob(UUID.randomUUID().toString(), Instant.now());
+        jobs.put(job.id, job);
+        try {
+            reportJobExecutor.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            permits.release();
+            throw new TooManyReportJobsException("Report job executor rejected the job.");
+        }
+
+        logger.info("Report job {} queued.", job.id);
+        return toResponse(job);
+    }
+
+    public ReportJobResponse getJob(String jobId) {
+        return toResponse(findJob(jobId));
+    }
+
+    public Path getReportFile(String jobId) {
+        ReportJob job = findJob(jobId);
+        if (job.status != ReportJobResponse.Status.COMPLETED) {
+            throw new ReportJobNotReadyException("Report job " + jobId + " is " + job.status);
+        }
+        return reportFile(job.id);
+    }
+
+    // Drops finished jobs older than the ttl together with their files
+    @Scheduled(fixedDelayString = "${report.jobs.cleanup-interval:PT5M}")
+    public void purgeExpiredJobs() {
+        Instant cutoff = Instant.now().minus(ttl);
+        jobs.values().removeIf(job -> {
+            if (job.finishedAt == null || job.finishedAt.isAfter(cutoff)) {
+                return false;
+            }
+            deleteQuietly(reportFile(job.id));
+            logger.info("Report job {} expired.", job.id);
+            return true;
+        });
+
+        // Files left behind by a previous run of the application
+        try (Stream<Path> files = Files.list(jobsDir)) {
+            files.filter(file -> !jobs.containsKey(jobId(file)))
+                    .filter(file -> isOlderThan(file, cutoff))
+                    .forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            logger.error("Failed to sweep report directory {}: {}", jobsDir, e.getMessage());
+        }
+    }
+
+    private void run(ReportJob job) {
+        job.startedAt = Instant.now();
+        job.status = ReportJobResponse.Status.RUNNING;
+        Path partFile = jobsDir.resolve(job.id + ".csv.part");
+
+        try {
+            try (Writer writer = Files.newBufferedWriter(partFile, StandardCharsets.UTF_8)) {
+                reportService.writeReport(writer, null, job.rowsWritten);
+            }
+            Files.move(partFile, reportFile(job.id), StandardCopyOption.REPLACE_EXISTING);
+            job.status = ReportJobResponse.Status.COMPLETED;
+            logger.info("Report job {} completed with {} users.", job.id, job.rowsWritten.get());
+        } catch (Exception e) {
+            job.status = ReportJobResponse.Status.FAILED;
+            deleteQuietly(partFile);
+            logger.error("Report job {} failed: {}", job.id, e.getMessage(), e);
+        } finally {
+            job.finishedAt = Instant.now();
+            permits.release();
+        }
+    }
+
+    private ReportJob findJob(String jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ReportJobNotFoundException("No report job found with id: " + jobId);
+        }
+        return job;
+    }
+
+    private ReportJobResponse toResponse(ReportJob job) {
+        Instant startedAt = job.startedAt;
+        Instant finishedAt = job.finishedAt;
+        long elapsed = startedAt == null ? 0 : Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now()).toMillis();
+        ReportJobResponse.Status status = job.status;
+
+        return ReportJobResponse.builder()
+                .jobId(job.id)
+                .status(status)
+                .rowsWritten(job.rowsWritten.get())
+                .elapsedMillis(elapsed)
+                .createdAt(job.createdAt)
+                .completedAt(finishedAt)
+                .downloadUrl(status == ReportJobResponse.Status.COMPLETED ? "/api/report/jobs/" + job.id + "/download" : null)
+                .build();
+    }
+
+    private Path reportFile(String jobId) {
+        return jobsDir.resolve(jobId + ".csv");
+    }
+
+    private String jobId(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    private boolean isOlderThan(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.error("Failed to delete report file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static class ReportJob {
+        private final String id;
+        private final Instant createdAt;
+        private final AtomicLong rowsWritten = new AtomicLong();
+        private volatile ReportJobResponse.Status status = ReportJobResponse.Status.PENDING;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+
+        private ReportJob(String id, Instant createdAt) {
+            this.id = id;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -2,71 +2,122 @@ package com.task.simlipfymoney.services;
 
 
 import com.task.simlipfymoney.dtos.ReferralReportResponse;
+import com.task.simlipfymoney.entities.ReferralEdge;
 import com.task.simlipfymoney.entities.User;
 import com.task.simlipfymoney.exceptions.CsvGenerationException;
+import com.task.simlipfymoney.repositories.ReferralEdgeRepository;
 import com.task.simlipfymoney.repositories.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.FilterWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ReportService {
 
     private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
 
+    // Response header carrying the watermark to pass as since on the next incremental export
+    public static final String WATERMARK_HEADER = "X-Report-Watermark";
+
+    // Users per referral lookup when no cursor batch size is configured
+    static final int DEFAULT_CHUNK_SIZE = 500;
+
+    // Formatted chunks a range may have waiting for the writer
+    static final int CHUNKS_AHEAD = 2;
+
+    // Marks the end of a range, after its last chunk or its failure
+    private static final Chunk END = new Chunk("", 0);
+
+    static final String CSV_HEADER = String.format("Name,Email,Referral Code,Referrer Code,Profile Completed,Phone Number,Address,Referred Users%n");
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ReferralEdgeRepository referralEdgeRepository;
+
+    @Autowired
+    @Qualifier("reportExecutor")
+    private ExecutorService reportExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Number of documents fetched per cursor round trip, 0 leaves it to the driver default
+    @Value("${report.export.batch-size:500}")
+    private int batchSize;
+
+    // Subtracted from the watermark. A write that read the clock just before the watermark but commits after the export
+    // has read past it, or a clock running behind on another instance, is then picked up by the next delta instead of lost.
+    @Value("${report.export.watermark-margin:PT5S}")
+    private Duration watermarkMargin;
+
+    // Number of id ranges the export is split into, 1 keeps the single sequential cursor
+    @Value("${report.export.partitions:1}")
+    private int partitions;
+
+    // Id ranges exported at once. Each range hands at most CHUNKS_AHEAD formatted chunks of batch-size rows to the
+    // writer and blocks until they are written, so memory is bounded by workers x chunk, not by the range size.
+    @Value("${report.export.workers:4}")
+    private int workers;
+
+    @Timed(value = "report.export", description = "Referral report downloads")
     public void generateCsvReport(HttpServletResponse response) {
-        logger.info("Starting CSV report generation...");
+        generateCsvReport(response, null);
+    }
+
+    // Full report when since is null, otherwise only users created or modified at or after since
+    @Timed(value = "report.export", description = "Referral report downloads")
+    public void generateCsvReport(HttpServletResponse response, Instant since) {
+        logger.info("Starting CSV report generation{}...", since == null ? "" : " for users modified since " + since);
 
         try {
             String filename = "referral_report.csv";
             response.setContentType("text/csv");
             response.setHeader("Content-Disposition", "attachment; filename=" + URLEncoder.encode(filename, StandardCharsets.UTF_8));
 
-            PrintWriter writer = response.getWriter();
+            // Taken before reading so rows written during the export are picked up by the next delta. lastModifiedAt
+            // comes from the application clock too, the margin covers writes in flight and skew between instances.
+            response.setHeader(WATERMARK_HEADER, Instant.now().minus(watermarkMargin).toString());
 
-            // Write CSV header
-            writer.println("Name,Email,Referral Code,Referrer Code,Profile Completed,Phone Number,Address,Referred Users");
-
-            List<User> allUsers = userRepository.findAll();
-            logger.info("Fetched {} users from database for CSV generation.", allUsers.size());
-
-            for (User user : allUsers) {
-                ReferralReportResponse dto = ReferralReportResponse.builder()
-                        .name(user.getName())
-                        .email(user.getEmail())
-                        .referralCode(user.getReferralCode())
-                        .referrerCode(user.getReferrerCode())
-                        .profileCompleted(user.isProfileCompleted())
-                        .phoneNumber(user.getPhoneNumber())
-                        .address(user.getAddress())
-                        .referredUsers(user.getReferredUsers())
-                        .build();
-
-                String referred = dto.getReferredUsers() != null ? String.join(";", dto.getReferredUsers()) : "";
-                writer.printf("%s,%s,%s,%s,%s,%s,%s,%s%n",
-                        sanitize(dto.getName()),
-                        sanitize(dto.getEmail()),
-                        sanitize(dto.getReferralCode()),
-                        sanitize(dto.getReferrerCode()),
-                        dto.isProfileCompleted(),
-                        sanitize(dto.getPhoneNumber()),
-                        sanitize(dto.getAddress()),
-                        sanitize(referred));
-            }
+            PrintWriter writer = response.getWriter();
+            long rowCount = writeReport(writer, since, new AtomicLong());
 
             writer.flush();
             writer.close();
-            logger.info("CSV report generated and sent successfully.");
+            logger.info("CSV report generated and sent successfully with {} users.", rowCount);
 
         } catch (Exception e) {
             logger.error("Error generating CSV report: {}", e.getMessage(), e);
@@ -74,7 +125,207 @@ public class ReportService {
         }
     }
 
-    private String sanitize(String value) {
+    // Writes the CSV header and the user rows, progress is advanced as rows are written.
+    // Rows and UTF-8 bytes written are counted as they go, so their rate is visible while a long export runs.
+    public long writeReport(Writer writer, Instant since, AtomicLong progress) throws Exception {
+        Writer counted = new ByteCountingWriter(writer, meterRegistry.counter("report.export.bytes"));
+        LongConsumer onRows = rows -> {
+            progress.addAndGet(rows);
+            meterRegistry.counter("report.export.rows").increment(rows);
+        };
+        counted.write(CSV_HEADER);
+        if (since != null) {
+            return writeRows(userRepository.streamForReportModifiedSince(since, batchSize), counted, onRows);
+        }
+        return partitions > 1 ? writeRowsInParallel(counted, onRows) : writeRows(userRepository.streamForReport(batchSize), counted, onRows);
+    }
+
+    // Splits the collection into id ranges, formats them on the report executor and writes them back in id order.
+    // Only the range being written and the workers - 1 after it run at once, each holding a few formatted chunks.
+    private long writeRowsInParallel(Writer writer, LongConsumer onRows) throws Exception {
+        List<Object> boundaries = userRepository.findIdBoundaries(partitions);
+        List<Object> starts = new ArrayList<>();
+        starts.add(null);
+        starts.addAll(boundaries);
+        logger.info("Exporting users in {} id ranges.", starts.size());
+
+        Deque<Partition> pending = new ArrayDeque<>();
+        int next = 0;
+        long rowCount = 0;
+        try {
+            while (next < starts.size() || !pending.isEmpty()) {
+                while (next < starts.size() && pending.size() < Math.max(workers, 1)) {
+                    Object fromId = starts.get(next);
+                    Object toId = next + 1 < starts.size() ? starts.get(next + 1) : null;
+                    BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(CHUNKS_AHEAD);
+                    pending.add(new Partition(chunks, reportExecutor.submit(() -> exportPartition(fromId, toId, chunks))));
+                    next++;
+                }
+                // Stays pending until fully written, so a failed write also cancels the range being written
+                Partition partition = pending.peek();
+                for (Chunk chunk = partition.chunks().take(); chunk != END; chunk = partition.chunks().take()) {
+                    writer.write(chunk.csv());
+                    rowCount += chunk.rows();
+                    onRows.accept(chunk.rows());
+                }
+                // Rethrows the failure of a range that ended early
+                partition.rows().get();
+                pending.poll();
+            }
+        } finally {
+            pending.forEach(partition -> partition.rows().cancel(true));
+        }
+        return rowCount;
+    }
+
+    // Formats one id range a chunk at a time, waiting while the writer still has CHUNKS_AHEAD of its chunks to write.
+    // Every chunk is its own query resuming after the last id read, so a waiting range holds no server cursor.
+    private long exportPartition(Object fromId, Object toId, BlockingQueue<Chunk> chunks) throws Exception {
+        int chunkSize = chunkSize();
+        StringWriter buffer = new StringWriter();
+        long rowCount = 0;
+        try {
+            List<User> page = userRepository.findForReport(fromId, null, toId, chunkSize);
+            while (!page.isEmpty()) {
+                writeChunk(page, buffer);
+                chunks.put(new Chunk(buffer.toString(), page.size()));
+                buffer.getBuffer().setLength(0);
+                rowCount += page.size();
+                if (page.size() < chunkSize) {
+                    break;
+                }
+                page = userRepository.findForReport(fromId, page.get(page.size() - 1).getId(), toId, chunkSize);
+            }
+            return rowCount;
+        } catch (InterruptedException e) {
+            // Keeps the flag so putting END below does not wait on a queue nobody reads
+            Thread.currentThread().interrupt();
+            throw new CsvGenerationException("Report export was cancelled");
+        } finally {
+            try {
+                chunks.put(END);
+            } catch (InterruptedException e) {
+                // Cancelled, nobody is reading the range any more
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Writes every user of the stream as a CSV row and closes the underlying cursor.
+    // Referrals are fetched from the edge collection once per chunk of users.
+    long writeRows(Stream<User> users, Writer writer, LongConsumer onRows) throws Exception {
+        int chunkSize = chunkSize();
+        List<User> chunk = new ArrayList<>(chunkSize);
+        long rowCount = 0;
+        try (users) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    writeChunk(chunk, writer);
+                    rowCount += chunk.size();
+                    onRows.accept(chunk.size());
+                    chunk.clear();
+                }
+            }
+        }
+        return rowCount;
+    }
+
+    private int chunkSize() {
+        return batchSize > 0 ? batchSize : DEFAULT_CHUNK_SIZE;
+    }
+
+    private void writeChunk(List<User> chunk, Writer writer) throws Exception {
+        List<String> referralCodes = chunk.stream()
+                .map(User::getReferralCode)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        Map<String, List<String>> referredByCode = referralCodes.isEmpty() ? Map.of() : referralEdgeRepository.findByReferrerCodeIn(referralCodes)
+                .stream()
+                .collect(Collectors.groupingBy(ReferralEdge::getReferrerCode,
+                        Collectors.mapping(ReferralEdge::getReferredEmail, Collectors.toList())));
+
+        for (User user : chunk) {
+            List<String> referredUsers = user.getReferralCode() != null ? referredByCode.get(user.getReferralCode()) : null;
+            writer.write(formatRow(user, referredUsers != null ? referredUsers : List.of()));
+        }
+    }
+
+    // Formats a single user as a CSV row terminated by a line separator
+    static String formatRow(User user, List<String> referredUsers) {
+        ReferralReportResponse dto = ReferralReportResponse.builder()
+                .name(user.getName())
+                .email(user.getEmail())
+                .referralCode(user.getReferralCode())
+                .referrerCode(user.getReferrerCode())
+                .profileCompleted(user.isProfileCompleted())
+                .phoneNumber(user.getPhoneNumber())
+                .address(user.getAddress())
+                .referredUsers(referredUsers)
+                .build();
+
+        String referred = dto.getReferredUsers() != null ? String.join(";", dto.getReferredUsers()) : "";
+        return String.format("%s,%s,%s,%s,%s,%s,%s,%s%n",
+                sanitize(dto.getName()),
+                sanitize(dto.getEmail()),
+                sanitize(dto.getReferralCode()),
+                sanitize(dto.getReferrerCode()),
+                dto.isProfileCompleted(),
+                sanitize(dto.getPhoneNumber()),
+                sanitize(dto.getAddress()),
+                sanitize(referred));
+    }
+
+    static String sanitize(String value) {
         return value == null ? "" : value.replace(",", " ");
     }
-}
\ No newline at end of file
+
+    private record Chunk(String csv, long rows) {
+    }
+
+    private record Partition(BlockingQueue<Chunk> chunks, Future<Long> rows) {
+    }
+
+    // Adds the UTF-8 length of everything written to the counter
+    private static final class ByteCountingWriter extends FilterWriter {
+
+        private final Counter bytes;
+
+        private ByteCountingWriter(Writer out, Counter bytes) {
+            super(out);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            bytes.increment(utf8Length((char) c));
+        }
+
+        @Override
+        public void write(char[] chars, int off, int len) throws IOException {
+            out.write(chars, off, len);
+            long length = 0;
+            for (int i = off; i < off + len; i++) {
+                length += utf8Length(chars[i]);
+            }
+            bytes.increment(length);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            out.write(str, off, len);
+            long length = 0;
+            for (int i = off; i < off + len; i++) {
+                length += utf8Length(str.charAt(i));
+            }
+            bytes.increment(length);
+        }
+
+        // A surrogate pair counts 2 per half, the 4 bytes of its code point
+        private static int utf8Length(char c) {
+            return c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.task.simlipfymoney.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Coalesces identical calls that overlap in time: the first caller for a key runs the call, callers arriving while it
+// runs wait for and share its result or exception. Nothing is kept once the call completes, so this is not a cache.
+// The call runs on the first caller's thread outside of any map lock, so waiting virtual threads are never pinned.
+public class SingleFlight<K, V> implements MeterBinder {
+
+    private final String name;
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executed = new AtomicLong();
+
+    private final AtomicLong shared = new AtomicLong();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            shared.incrementAndGet();
+            return join(running);
+        }
+
+        executed.incrementAndGet();
+        try {
+            V result = call.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    public long getSharedCount() {
+        return shared.get();
+    }
+
+    // shared / (executed + shared) is the fraction of calls that did not run themselves
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("single.flight.calls", executed, AtomicLong::get)
+                .description("Calls that ran themselves")
+                .tags("name", name, "outcome", "executed")
+                .register(registry);
+        FunctionCounter.builder("single.flight.calls", shared, AtomicLong::get)
+                .description("Calls that waited for an identical call in flight and shared its result")
+                .tags("name", name, "outcome", "shared")
+                .register(registry);
+        Gauge.builder("single.flight.in.flight", inFlight, Map::size)
+                .description("Distinct calls currently running")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    // Rethrows the leader's exception as it was thrown, so every caller gets the same error handling
+    private static <V> V join(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.dtos.BatchSignupResult;
+import com.task.simlipfymoney.dtos.ImportSummary;
+import com.task.simlipfymoney.dtos.SignupRequest;
+import com.task.simlipfymoney.exceptions.InvalidImportFileException;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Imports users from a CSV file with the columns name, email, password and optionally referrerCode and referralCode.
+// Rows are parsed as they arrive and written in batches through the bulk signup path, so memory is bounded by
+// one batch whatever the file size, and reading stops while a batch is written.
+@Service
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "email", "password");
+
+    private static final CSVFormat FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .setIgnoreHeaderCase(true)
+            .setIgnoreEmptyLines(true)
+            .setTrim(true)
+            .get();
+
+    @Autowired
+    private UserService userService;
+
+    @Value("${import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${import.max-errors:100}")
+    private int maxErrors;
+
+    public ImportSummary importCsv(Reader reader) {
+        long start = System.nanoTime();
+        Batch batch = new Batch();
+        ImportSummary summary = ImportSummary.builder()
+                .errors(new ArrayList<>())
+                .completed(true)
+                .build();
+
+        try (CSVParser parser = openParser(reader)) {
+            List<String> missing = REQUIRED_COLUMNS.stream()
+                    .filter(column -> !parser.getHeaderMap().containsKey(column))
+                    .toList();
+            if (!missing.isEmpty()) {
+                throw new InvalidImportFileException("Missing CSV columns: " + String.join(", ", missing));
+            }
+            logger.info("Starting CSV user import in batches of {}", batchSize);
+
+            Iterator<CSVRecord> records = parser.iterator();
+            try {
+                while (records.hasNext()) {
+                    batch.add(records.next(), parser.getCurrentLineNumber());
+                    if (batch.size() == batchSize) {
+                        flush(batch, summary);
+                        batch = new Batch();
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                // Malformed input ends the import, rows already written stay
+                logger.error("CSV user import stopped at line {}: {}", parser.getCurrentLineNumber(), e.getMessage());
+                summary.setCompleted(false);
+                addError(summary, parser.getCurrentLineNumber(), null, "Malformed CSV: " + e.getMessage());
+            }
+            flush(batch, summary);
+        } catch (IOException e) {
+            throw new InvalidImportFileException("Could not read CSV file: " + e.getMessage());
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        summary.setElapsedMillis(elapsedMillis);
+        summary.setRowsPerSecond(summary.getRowsRead() * 1000 / Math.max(elapsedMillis, 1));
+        logger.info("CSV user import finished: {} rows, {} created, {} failed in {} ms",
+                summary.getRowsRead(), summary.getCreated(), summary.getFailed(), elapsedMillis);
+        return summary;
+    }
+
+    private CSVParser openParser(Reader reader) throws IOException {
+        try {
+            return FORMAT.parse(reader);
+        } catch (IllegalArgumentException e) {
+            // Thrown while reading the header, e.g. for duplicate column names
+            throw new InvalidImportFileException("Invalid CSV header: " + e.getMessage());
+        }
+    }
+
+    private void flush(Batch batch, ImportSummary summary) {
+        if (batch.size() == 0) {
+            return;
+        }
+        List<BatchSignupResult> results = userService.signupAll(batch.requests, batch.referralCodes);
+        for (BatchSignupResult result : results) {
+            if (result.getStatus() == BatchSignupResult.Status.CREATED) {
+                summary.setCreated(summary.getCreated() + 1);
+            } else {
+                summary.setFailed(summary.getFailed() + 1);
+                addError(summary, batch.lines.get(result.getIndex()), result.getEmail(), result.getError());
+            }
+        }
+        summary.setRowsRead(summary.getRowsRead() + batch.size());
+    }
+
+    private void addError(ImportSummary summary, long line, String email, String error) {
+        if (summary.getErrors().size() < maxErrors) {
+            summary.getErrors().add(ImportSummary.ImportError.builder()
+                    .line(line)
+                    .email(email)
+                    .error(error)
+                    .build());
+        } else {
+            summary.setErrorsTruncated(true);
+        }
+    }
+
+    private static String column(CSVRecord record, String name) {
+        if (!record.isMapped(name) || !record.isSet(name)) {
+            return null;
+        }
+        String value = record.get(name);
+        return value.isEmpty() ? null : value;
+    }
+
+    // Rows of the batch being collected, with the line each one ended on for error reporting
+    private static class Batch {
+        private final List<SignupRequest> requests = new ArrayList<>();
+        private final List<String> referralCodes = new ArrayList<>();
+        private final List<Long> lines = new ArrayList<>();
+
+        void add(CSVRecord record, long line) {
+            SignupRequest request = new SignupRequest();
+            request.setName(column(record, "name"));
+            request.setEmail(column(record, "email"));
+            request.setPassword(column(record, "password"));
+            request.setReferrerCode(column(record, "referrerCode"));
+            requests.add(request);
+            referralCodes.add(column(record, "referralCode"));
+            lines.add(line);
+        }
+
+        int size() {
+            return requests.size();
+        }
+    }
+}
@@ -1,73 +1,485 @@
 package com.task.simlipfymoney.services;
 
+import com.task.simlipfymoney.dtos.BatchSignupResponse;
+import com.task.simlipfymoney.dtos.BatchSignupResult;
+import com.task.simlipfymoney.dtos.DownlineNode;
+import com.task.simlipfymoney.dtos.DownlineResponse;
+import com.task.simlipfymoney.dtos.LeaderboardEntry;
 import com.task.simlipfymoney.dtos.ProfileCompletionRequest;
+import com.task.simlipfymoney.dtos.ReferralCountResponse;
+import com.task.simlipfymoney.dtos.ReferredUsersPage;
 import com.task.simlipfymoney.dtos.SignupRequest;
 import com.task.simlipfymoney.dtos.UserResponse;
+import com.task.simlipfymoney.entities.ReferralCounter;
+import com.task.simlipfymoney.entities.ReferralEdge;
 import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.exceptions.BatchTooLargeException;
 import com.task.simlipfymoney.exceptions.DuplicateEmailException;
+import com.task.simlipfymoney.exceptions.InvalidPageCursorException;
 import com.task.simlipfymoney.exceptions.InvalidReferralCodeException;
+import com.task.simlipfymoney.exceptions.ReferralCodeAllocationException;
 import com.task.simlipfymoney.exceptions.UserNotFoundException;
+import com.task.simlipfymoney.repositories.ReferralCounterRepository;
+import com.task.simlipfymoney.repositories.ReferralEdgeRepository;
 import com.task.simlipfymoney.repositories.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
-import java.security.SecureRandom;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
-public class UserService {
+public class UserService implements MeterBinder {
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
     @Autowired
     private UserRepository userRepository;
 
-    private static final String ALPHANUMERIC_CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    @Autowired
+    private ReferralEdgeRepository referralEdgeRepository;
 
-    public UserResponse signup(SignupRequest request) {
-        logger.info("Attempting to sign up user with email: {}", request.getEmail());
+    @Autowired
+    private ReferralCounterRepository referralCounterRepository;
 
-        if (userRepository.findByEmail(request.getEmail()).isPresent()) {
-            logger.error("Signup failed: Email {} is already in use", request.getEmail());
-            throw new DuplicateEmailException("Email is already in use. Please use a different email.");
-        }
+    @Autowired
+    private ReferralCodeAllocator referralCodeAllocator;
 
-        User user = new User();
-        user.setName(request.getName());
-        user.setEmail(request.getEmail());
-        user.setPassword(request.getPassword());
-        user.setReferralCode(generateReferralCode());
+    @Autowired
+    private ReferrerCache referrerCache;
+
+    @Autowired
+    private ReferralLeaderboard referralLeaderboard;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private ProfileWriteBehind profileWriteBehind;
+
+    @Autowired
+    private Validator validator;
+
+    private final SingleFlight<ReferredUsersKey, ReferredUsersPage> referredUsersFlight = new SingleFlight<>("referred-users");
+
+    @Value("${signup.batch.max-size:1000}")
+    private int maxBatchSize;
 
+    @Value("${referral.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${referral.page.max-size:500}")
+    private int maxPageSize;
+
+    @Value("${referral.leaderboard.default-size:10}")
+    private int defaultLeaderboardSize;
+
+    @Value("${referral.downline.default-depth:3}")
+    private int defaultDownlineDepth;
+
+    @Value("${referral.downline.max-depth:5}")
+    private int maxDownlineDepth;
+
+    // Upper bound on the nodes returned for the whole downline, the last level fetched is cut to fit
+    @Value("${referral.downline.max-nodes:1000}")
+    private int maxDownlineNodes;
+
+    @Timed(value = "user.service", description = "User service calls by method and exception")
+    public UserResponse signup(SignupRequest request) {
+        logger.info("Attempting to sign up user with email: {}", request.getEmail());
+
+        // Rejected before hashing, an invalid referral code never costs a turn on the password hash executor
         if (request.getReferrerCode() != null) {
-            Optional<User> referrer = userRepository.findByReferralCode(request.getReferrerCode());
-            if (referrer.isPresent()) {
-                user.setReferrerCode(request.getReferrerCode());
-                logger.info("Referrer code {} validated for user {}", request.getReferrerCode(), request.getEmail());
-            } else {
+            if (referrerCache.findByReferralCode(request.getReferrerCode()).isEmpty()) {
                 logger.error("Invalid referral code: {}", request.getReferrerCode());
                 throw new InvalidReferralCodeException("Invalid referral code provided.");
             }
+            logger.info("Referrer code {} validated for user {}", request.getReferrerCode(), request.getEmail());
         }
 
-        User savedUser = userRepository.save(user);
+        User user = newUser(request);
+        user.setReferrerCode(request.getReferrerCode());
+        user.setPassword(passwordHasher.hash(request.getPassword()));
+
+        // The unique indexes reject duplicate emails and colliding referral codes, no read before the insert
+        User savedUser = null;
+        for (int attempt = 1; savedUser == null; attempt++) {
+            user.setReferralCode(generateReferralCode());
+            try {
+                savedUser = userRepository.insert(user);
+            } catch (DuplicateKeyException e) {
+                if (isDuplicateKeyOn(e, "email")) {
+                    logger.error("Signup failed: Email {} is already in use", request.getEmail());
+                    throw new DuplicateEmailException("Email is already in use. Please use a different email.");
+                }
+                if (!isDuplicateKeyOn(e, "referralCode")) {
+                    throw e;
+                }
+                if (attempt == ReferralCodeAllocator.MAX_ATTEMPTS) {
+                    logger.error("Signup failed: no free referral code after {} attempts", attempt);
+                    throw new ReferralCodeAllocationException("Could not allocate a unique referral code.");
+                }
+                logger.warn("Referral code {} already taken, retrying", user.getReferralCode());
+            }
+        }
+        if (savedUser.getReferrerCode() != null) {
+            incrementReferralCounter(savedUser.getReferrerCode(), 1, 0);
+        }
         logger.info("User signed up successfully with email: {}", savedUser.getEmail());
         return mapToUserResponse(savedUser);
     }
 
+    // Signs up many users with one referrer query, bulk allocated referral codes and one unordered bulk insert.
+    // Every request gets its own result, a failing request does not fail the others.
+    @Timed(value = "user.service", description = "User service calls by method and exception")
+    public BatchSignupResponse signupBatch(List<SignupRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            logger.error("Batch signup rejected: {} users exceed the maximum of {}", requests.size(), maxBatchSize);
+            throw new BatchTooLargeException("Batch of " + requests.size() + " users exceeds the maximum of " + maxBatchSize);
+        }
+        logger.info("Attempting batch signup of {} users", requests.size());
+
+        List<BatchSignupResult> results = signupAll(requests, Collections.nCopies(requests.size(), null));
+        int created = (int) results.stream().filter(result -> result.getStatus() == BatchSignupResult.Status.CREATED).count();
+        logger.info("Batch signup finished: {} created, {} failed", created, results.size() - created);
+        return new BatchSignupResponse(created, results.size() - created, results);
+    }
+
+    // Bulk signup shared by the batch endpoint and the CSV import, one result per request in request order.
+    // referralCodes holds, per request, a code to keep (e.g. from a legacy system) or null to allocate one.
+    // A kept code may also be used as referrer by other requests of the same call, such requests are inserted after
+    // the owner of the code and fail if the owner could not be inserted.
+    List<BatchSignupResult> signupAll(List<SignupRequest> requests, List<String> referralCodes) {
+        BatchSignupResult[] results = new BatchSignupResult[requests.size()];
+        List<Integer> pending = new ArrayList<>();
+        Set<String> emails = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            SignupRequest request = requests.get(i);
+            if (request == null) {
+                results[i] = failedSignup(i, null, "Missing user.");
+                continue;
+            }
+            Set<ConstraintViolation<SignupRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                ConstraintViolation<SignupRequest> violation = violations.iterator().next();
+                results[i] = failedSignup(i, request, "Invalid " + violation.getPropertyPath() + ": " + violation.getMessage());
+            } else if (!emails.add(request.getEmail())) {
+                results[i] = failedSignup(i, request, "Email appears more than once in the batch.");
+            } else {
+                pending.add(i);
+            }
+        }
+
+        Set<String> keptCodes = pending.stream()
+                .map(referralCodes::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<String> referrerCodes = pending.stream()
+                .map(i -> requests.get(i).getReferrerCode())
+                .filter(code -> code != null && !keptCodes.contains(code))
+                .collect(Collectors.toSet());
+        Set<String> knownReferrers = new HashSet<>();
+        if (!referrerCodes.isEmpty()) {
+            knownReferrers.addAll(userRepository.findExistingReferralCodes(referrerCodes));
+        }
+
+        // Requests referred by a code kept in this batch wait until the owner of that code is inserted
+        List<Integer> waiting = new ArrayList<>();
+        pending.removeIf(i -> {
+            String referrerCode = requests.get(i).getReferrerCode();
+            if (referrerCode == null || knownReferrers.contains(referrerCode)) {
+                return false;
+            }
+            if (keptCodes.contains(referrerCode)) {
+                waiting.add(i);
+            } else {
+                results[i] = failedSignup(i, requests.get(i), "Invalid referral code provided.");
+            }
+            return true;
+        });
+
+        // Each round inserts the requests whose referrer exists, then frees those referred by the owners it created
+        while (!pending.isEmpty()) {
+            insertAll(requests, referralCodes, pending, results);
+            pending.stream()
+                    .filter(i -> results[i].getStatus() == BatchSignupResult.Status.CREATED && referralCodes.get(i) != null)
+                    .forEach(i -> knownReferrers.add(referralCodes.get(i)));
+            pending = new ArrayList<>();
+            for (Iterator<Integer> it = waiting.iterator(); it.hasNext(); ) {
+                int i = it.next();
+                if (knownReferrers.contains(requests.get(i).getReferrerCode())) {
+                    pending.add(i);
+                    it.remove();
+                }
+            }
+        }
+        // The owner of the referrer code failed, e.g. with a duplicate email
+        waiting.forEach(i -> results[i] = failedSignup(i, requests.get(i), "Invalid referral code provided."));
+
+        Map<String, Long> signedUpByReferrer = Arrays.stream(results)
+                .filter(result -> result.getStatus() == BatchSignupResult.Status.CREATED && result.getUser().getReferrerCode() != null)
+                .collect(Collectors.groupingBy(result -> result.getUser().getReferrerCode(), Collectors.counting()));
+        if (!signedUpByReferrer.isEmpty()) {
+            try {
+                referralCounterRepository.incrementSignedUp(signedUpByReferrer);
+            } catch (DataAccessException e) {
+                logger.error("Failed to update referral counters for batch signup: {}", e.getMessage());
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    // Hashes and bulk inserts the pending requests, settling a result for each of them
+    private void insertAll(List<SignupRequest> requests, List<String> referralCodes, List<Integer> pending, BatchSignupResult[] results) {
+        List<String> passwordHashes = passwordHasher.hashAll(pending.stream()
+                .map(i -> requests.get(i).getPassword())
+                .collect(Collectors.toList()));
+        Map<Integer, User> users = new HashMap<>();
+        for (int j = 0; j < pending.size(); j++) {
+            User user = newUser(requests.get(pending.get(j)));
+            user.setPassword(passwordHashes.get(j));
+            user.setReferrerCode(requests.get(pending.get(j)).getReferrerCode());
+            users.put(pending.get(j), user);
+        }
+
+        // Users whose referral code collided are retried with fresh codes, the rest are settled after one bulk insert
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            int toAllocate = (int) pending.stream().filter(i -> referralCodes.get(i) == null).count();
+            Iterator<String> codes = referralCodeAllocator.allocate(toAllocate).iterator();
+            List<User> batch = new ArrayList<>(pending.size());
+            for (int i : pending) {
+                User user = users.get(i);
+                user.setReferralCode(referralCodes.get(i) != null ? referralCodes.get(i) : codes.next());
+                batch.add(user);
+            }
+
+            Map<Integer, String> errors = userRepository.insertUnordered(batch);
+            List<Integer> retry = new ArrayList<>();
+            for (int j = 0; j < pending.size(); j++) {
+                int i = pending.get(j);
+                String error = errors.get(j);
+                if (error == null) {
+                    results[i] = BatchSignupResult.builder()
+                            .index(i)
+                            .email(requests.get(i).getEmail())
+                            .status(BatchSignupResult.Status.CREATED)
+                            .user(mapToUserResponse(users.get(i)))
+                            .build();
+                } else if (isDuplicateKeyOn(error, "email")) {
+                    results[i] = failedSignup(i, requests.get(i), "Email is already in use.");
+                } else if (!isDuplicateKeyOn(error, "referralCode")) {
+                    logger.error("Batch signup failed for {}: {}", requests.get(i).getEmail(), error);
+                    results[i] = failedSignup(i, requests.get(i), "Could not create user.");
+                } else if (referralCodes.get(i) != null) {
+                    results[i] = failedSignup(i, requests.get(i), "Referral code is already in use.");
+                } else if (attempt == ReferralCodeAllocator.MAX_ATTEMPTS) {
+                    results[i] = failedSignup(i, requests.get(i), "Could not allocate a unique referral code.");
+                } else {
+                    retry.add(i);
+                }
+            }
+            pending = retry;
+        }
+    }
+
+    @Timed(value = "user.service", description = "User service calls by method and exception")
     public UserResponse completeProfile(ProfileCompletionRequest request) {
         logger.info("Attempting to complete profile for user with email: {}", request.getEmail());
 
-        User user = userRepository.findByEmailAndPassword(request.getEmail(), request.getPassword())
+        // Looked up by the email index only, the password is verified on the password hash executor.
+        // An unknown email is verified against a dummy hash, so the response time does not tell which accounts exist.
+        Optional<User> found = userRepository.findByEmail(request.getEmail());
+        boolean passwordMatches = passwordHasher.matches(request.getPassword(), found.map(User::getPassword).orElse(null));
+        User user = found.filter(existing -> passwordMatches)
                 .orElseThrow(() -> {
                     logger.error("Profile completion failed: Invalid email or password");
                     return new UserNotFoundException("Invalid email or password.");
                 });
+        if (passwordHasher.needsUpgrade(user.getPassword())) {
+            user.setPassword(passwordHasher.hash(request.getPassword()));
+        }
+
+        boolean referralApplied = applyProfile(user, request) && user.getReferrerCode() != null && applyReferral(user);
+
+        // Only the changed fields of the user and the referrer's lastModifiedAt, in one bulk write
+        profileWriteBehind.write(user, referralApplied ? user.getReferrerCode() : null);
+        referrerCache.invalidate(user.getReferralCode());
+        return mapToUserResponse(user);
+    }
+
+    // One page of completed referrals in the order they were recorded, cursor is the nextCursor of the previous page
+    @Timed(value = "user.service", description = "User service calls by method and exception")
+    public ReferredUsersPage getReferredUsers(String referralCode, String cursor, Integer limit) {
+        logger.info("Fetching referred users for referral code: {}", referralCode);
+
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        // Concurrent requests for the same page of a viral code share one set of queries
+        return referredUsersFlight.execute(new ReferredUsersKey(referralCode, cursor, pageSize),
+                () -> loadReferredUsers(referralCode, cursor, pageSize));
+    }
+
+    private ReferredUsersPage loadReferredUsers(String referralCode, String cursor, int pageSize) {
+        Optional<User> referrerUser = referrerCache.findByReferralCode(referralCode);
+
+        if (referrerUser.isEmpty()) {
+            logger.error("No user found with referral code: {}", referralCode);
+            throw new InvalidReferralCodeException("No user found with referral code: " + referralCode);
+        }
+
+        // One extra edge tells whether another page follows
+        Limit fetch = Limit.of(pageSize + 1);
+        List<ReferralEdge> edges = cursor == null
+                ? referralEdgeRepository.findByReferrerCodeOrderByIdAsc(referralCode, fetch)
+                : referralEdgeRepository.findByReferrerCodeAndIdGreaterThanOrderByIdAsc(referralCode, decodeCursor(cursor), fetch);
+
+        String nextCursor = null;
+        if (edges.size() > pageSize) {
+            edges = edges.subList(0, pageSize);
+            nextCursor = encodeCursor(edges.get(pageSize - 1).getId());
+        }
 
+        if (edges.isEmpty()) {
+            logger.warn("No referred user emails found for referral code: {}", referralCode);
+            return new ReferredUsersPage(List.of(), null);
+        }
+
+        List<String> referredEmails = edges.stream()
+                .map(ReferralEdge::getReferredEmail)
+                .collect(Collectors.toList());
+        Map<String, User> usersByEmail = userRepository.findByEmailInAndProfileCompletedTrue(referredEmails)
+                .orElse(List.of())
+                .stream()
+                .collect(Collectors.toMap(User::getEmail, Function.identity(), (first, second) -> first));
+
+        List<UserResponse> users = referredEmails.stream()
+                .map(usersByEmail::get)
+                .filter(Objects::nonNull)
+                .map(UserService::mapToUserResponse)
+                .collect(Collectors.toList());
+        logger.info("{} referred users fetched for referral code: {}", users.size(), referralCode);
+        return new ReferredUsersPage(users, nextCursor);
+    }
+
+    // Totals of a referrer, a single read of its counter document by id
+    public ReferralCountResponse getReferralCount(String referralCode) {
+        Optional<ReferralCounter> counter = referralCounterRepository.findById(referralCode);
+        if (counter.isPresent()) {
+            return new ReferralCountResponse(referralCode, counter.get().getSignedUp(), counter.get().getCompleted());
+        }
+
+        // No referral yet, still reject unknown codes
+        if (referrerCache.findByReferralCode(referralCode).isEmpty()) {
+            logger.error("No user found with referral code: {}", referralCode);
+            throw new InvalidReferralCodeException("No user found with referral code: " + referralCode);
+        }
+        return new ReferralCountResponse(referralCode, 0, 0);
+    }
+
+    // Referrers with the most completed referrals, served from memory
+    public List<LeaderboardEntry> getLeaderboard(Integer limit) {
+        return referralLeaderboard.top(limit == null ? defaultLeaderboardSize : Math.max(1, limit));
+    }
+
+    // Referral tree below a referrer, fetched level by level with one query on referrerCode per level
+    public DownlineResponse getDownline(String referralCode, Integer depth) {
+        logger.info("Fetching downline for referral code: {}", referralCode);
+
+        if (referrerCache.findByReferralCode(referralCode).isEmpty()) {
+            logger.error("No user found with referral code: {}", referralCode);
+            throw new InvalidReferralCodeException("No user found with referral code: " + referralCode);
+        }
+
+        int maxDepth = depth == null ? defaultDownlineDepth : Math.max(1, Math.min(depth, maxDownlineDepth));
+        List<DownlineNode> nodes = new ArrayList<>();
+        // Guards against revisiting a code should the referral data ever contain a cycle
+        Set<String> visited = new HashSet<>();
+        visited.add(referralCode);
+        List<String> frontier = List.of(referralCode);
+        boolean truncated = false;
+
+        for (int level = 1; level <= maxDepth && !frontier.isEmpty(); level++) {
+            int remaining = maxDownlineNodes - nodes.size();
+            if (remaining <= 0) {
+                truncated = true;
+                break;
+            }
+            // One extra user tells whether the level was cut
+            List<User> users = userRepository.findReferredBy(frontier, remaining + 1);
+            if (users.size() > remaining) {
+                users = users.subList(0, remaining);
+                truncated = true;
+            }
+
+            List<String> nextFrontier = new ArrayList<>();
+            for (User user : users) {
+                nodes.add(mapToDownlineNode(user, level));
+                if (user.getReferralCode() != null && visited.add(user.getReferralCode())) {
+                    nextFrontier.add(user.getReferralCode());
+                }
+            }
+            frontier = nextFrontier;
+        }
+
+        logger.info("{} downline users fetched for referral code: {}", nodes.size(), referralCode);
+        return new DownlineResponse(referralCode, maxDepth, nodes, truncated);
+    }
+
+    private DownlineNode mapToDownlineNode(User user, int depth) {
+        DownlineNode node = new DownlineNode();
+        node.setName(user.getName());
+        node.setEmail(user.getEmail());
+        node.setReferralCode(user.getReferralCode());
+        node.setReferrerCode(user.getReferrerCode());
+        node.setProfileCompleted(user.isProfileCompleted());
+        node.setDepth(depth);
+        return node;
+    }
+
+    static String encodeCursor(String edgeId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(edgeId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeCursor(String cursor) {
+        try {
+            String edgeId = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!ObjectId.isValid(edgeId)) {
+                throw new IllegalArgumentException("not an edge id");
+            }
+            return edgeId;
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid page cursor: {}", cursor);
+            throw new InvalidPageCursorException("Invalid page cursor: " + cursor);
+        }
+    }
+
+    // Copies the profile fields onto the user, returns true when this completes a profile that was incomplete
+    static boolean applyProfile(User user, ProfileCompletionRequest request) {
         user.setName(request.getName());
         user.setPhoneNumber(request.getPhoneNumber());
         user.setAddress(request.getAddress());
@@ -79,73 +491,74 @@ public class UserService {
             if (!user.isProfileCompleted()) {
                 user.setProfileCompleted(true);
                 logger.info("Profile completed successfully for user with email: {}", user.getEmail());
-
-                if (user.getReferrerCode() != null) {
-                    Optional<User> referrer = userRepository.findByReferralCode(user.getReferrerCode());
-                    // Adding referral logic
-                    if (referrer.isPresent()) {
-                        User referrerUser = referrer.get();
-                        if (referrerUser.getReferredUsers() == null) {
-                            referrerUser.setReferredUsers(new ArrayList<>());
-                        }
-                        referrerUser.getReferredUsers().add(user.getEmail());
-                        userRepository.save(referrerUser);
-                        logger.info("Referral applied: {} referred by {}", user.getEmail(), user.getReferrerCode());
-                    }
-                }
+                return true;
             }
         }
-
-        User savedUser = userRepository.save(user);
-        return mapToUserResponse(savedUser);
+        return false;
     }
 
-    public List<UserResponse> getReferredUsers(String referralCode) {
-        logger.info("Fetching referred users for referral code: {}", referralCode);
-
-        Optional<User> referrerUser = userRepository.findByReferralCode(referralCode);
-
-        if (referrerUser.isEmpty()) {
-            logger.error("No user found with referral code: {}", referralCode);
-            throw new InvalidReferralCodeException("No user found with referral code: " + referralCode);
+    // Records the referral as its own edge document, the unique (referrerCode, referredEmail) index makes it idempotent.
+    // Returns false when the referral was already recorded, so the referrer is not touched again.
+    private boolean applyReferral(User user) {
+        ReferralEdge edge = new ReferralEdge();
+        edge.setReferrerCode(user.getReferrerCode());
+        edge.setReferredEmail(user.getEmail());
+        try {
+            referralEdgeRepository.insert(edge);
+        } catch (DuplicateKeyException e) {
+            logger.warn("Referral of {} by {} already recorded", user.getEmail(), user.getReferrerCode());
+            return false;
         }
+        incrementReferralCounter(user.getReferrerCode(), 0, 1);
+        logger.info("Referral applied: {} referred by {}", user.getEmail(), user.getReferrerCode());
+        return true;
+    }
 
-        User referrer = referrerUser.get();
-
-        List<String> referredEmails = referrer.getReferredUsers();
-
-        if (referredEmails == null || referredEmails.isEmpty()) {
-            logger.warn("No referred user emails found for referral code: {}", referralCode);
-            return List.of();
+    // Counters are derived data, a failed increment is logged rather than failing a write that already succeeded
+    private void incrementReferralCounter(String referralCode, long signedUp, long completed) {
+        try {
+            ReferralCounter counter = referralCounterRepository.increment(referralCode, signedUp, completed);
+            if (completed > 0) {
+                referralLeaderboard.record(counter);
+            }
+        } catch (DataAccessException e) {
+            logger.error("Failed to update referral counters for {}: {}", referralCode, e.getMessage());
         }
+    }
 
-        Optional<List<User>> referredUsers = userRepository.findByEmailInAndProfileCompletedTrue(referredEmails);
+    // Mongo reports the violated index by name in the E11000 message
+    static boolean isDuplicateKeyOn(DuplicateKeyException e, String index) {
+        return isDuplicateKeyOn(e.getMessage(), index);
+    }
 
-        if (referredUsers.isPresent() && !referredUsers.get().isEmpty()) {
-            logger.info("{} referred users fetched for referral code: {}", referredUsers.get().size(), referralCode);
+    private static boolean isDuplicateKeyOn(String message, String index) {
+        return message != null && message.contains("index: " + index + " ");
+    }
 
-            return referredUsers
-                    .get().stream()
-                    .map(this::mapToUserResponse)
-                    .collect(Collectors.toList());
-        }else{
-            logger.warn("No referred users found for referral code: {}", referralCode);
-            return List.of();
-        }
+    // The password is left for the caller to set once hashed
+    static User newUser(SignupRequest request) {
+        User user = new User();
+        user.setName(request.getName());
+        user.setEmail(request.getEmail());
+        return user;
+    }
+
+    private BatchSignupResult failedSignup(int index, SignupRequest request, String error) {
+        return BatchSignupResult.builder()
+                .index(index)
+                .email(request != null ? request.getEmail() : null)
+                .status(BatchSignupResult.Status.FAILED)
+                .error(error)
+                .build();
     }
 
     // 6 character alphanumeric referral code generator
     String generateReferralCode() {
-        SecureRandom random = new SecureRandom();
-        StringBuilder referralCode = new StringBuilder(6);
-        for (int i = 0; i < 6; i++) {
-            referralCode.append(ALPHANUMERIC_CHARACTERS.charAt(random.nextInt(ALPHANUMERIC_CHARACTERS.length())));
-        }
-        return referralCode.toString();
+        return referralCodeAllocator.allocate();
     }
 
     // Mapping User to User Response
-    public UserResponse mapToUserResponse(User user) {
+    public static UserResponse mapToUserResponse(User user) {
         UserResponse response = new UserResponse();
         response.setName(user.getName());
         response.setEmail(user.getEmail());
@@ -156,4 +569,13 @@ public class UserService {
         response.setProfileCompleted(user.isProfileCompleted());
         return response;
     }
-}
\ No newline at end of file
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        referredUsersFlight.bindTo(registry);
+    }
+
+    // Requests that return the same page, the cursor is null for the first page
+    private record ReferredUsersKey(String referralCode, String cursor, int pageSize) {
+    }
+}
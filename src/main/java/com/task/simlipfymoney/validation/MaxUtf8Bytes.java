@@ -0,0 +1,26 @@
+package com.task.simlipfymoney.validation;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Limits the UTF-8 encoded length of a string, unlike @Size which counts chars. A null value is valid.
+@Documented
+@Constraint(validatedBy = MaxUtf8BytesValidator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface MaxUtf8Bytes {
+
+    int value();
+
+    String message() default "must be at most {value} bytes in UTF-8";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
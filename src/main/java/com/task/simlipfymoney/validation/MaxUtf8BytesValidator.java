@@ -0,0 +1,21 @@
+package com.task.simlipfymoney.validation;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+import java.nio.charset.StandardCharsets;
+
+public class MaxUtf8BytesValidator implements ConstraintValidator<MaxUtf8Bytes, String> {
+
+    private int max;
+
+    @Override
+    public void initialize(MaxUtf8Bytes constraint) {
+        max = constraint.value();
+    }
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        return value == null || value.getBytes(StandardCharsets.UTF_8).length <= max;
+    }
+}
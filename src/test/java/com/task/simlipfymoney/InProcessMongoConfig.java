@@ -0,0 +1,28 @@
+package com.task.simlipfymoney;
+
+import com.mongodb.ConnectionString;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.springframework.boot.autoconfigure.mongo.MongoConnectionDetails;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+// Points the application at an in-memory MongoDB wire protocol server living as long as the test context.
+// The server brings Netty onto the test classpath, so both drivers use the Netty transport here, unlike in production.
+@TestConfiguration(proxyBeanMethods = false)
+public class InProcessMongoConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public MongoServer mongoServer() {
+        MongoServer server = new MongoServer(new MemoryBackend());
+        server.bind();
+        return server;
+    }
+
+    // Replaces spring.data.mongodb.uri for both the blocking and the reactive client
+    @Bean
+    public MongoConnectionDetails mongoConnectionDetails(MongoServer mongoServer) {
+        ConnectionString connectionString = new ConnectionString(mongoServer.getConnectionString() + "/TaskDB");
+        return () -> connectionString;
+    }
+}
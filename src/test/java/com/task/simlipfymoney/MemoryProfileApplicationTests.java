@@ -0,0 +1,29 @@
+package com.task.simlipfymoney;
+
+import com.task.simlipfymoney.repositories.InMemoryUserRepository;
+import com.task.simlipfymoney.repositories.UserRepository;
+import com.task.simlipfymoney.services.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest(properties = "spring.data.mongodb.auto-index-creation=false")
+@ActiveProfiles("memory")
+class MemoryProfileApplicationTests {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void memoryProfileSwapsTheUserRepository() {
+        assertInstanceOf(InMemoryUserRepository.class, userRepository);
+        assertInstanceOf(InMemoryUserRepository.class, ReflectionTestUtils.getField(userService, "userRepository"));
+    }
+}
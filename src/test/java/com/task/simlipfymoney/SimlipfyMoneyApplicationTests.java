@@ -3,7 +3,7 @@ package com.task.simlipfymoney;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "spring.data.mongodb.auto-index-creation=false")
 class SimlipfyMoneyApplicationTests {
 
     @Test
@@ -0,0 +1,116 @@
+package com.task.simlipfymoney.controllers;
+
+import com.task.simlipfymoney.services.ReactiveReportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+// Runs on the embedded Tomcat, the non-blocking writes need a real connector rather than MockMvc
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.data.mongodb.auto-index-creation=false")
+public class ReactiveReportControllerTest {
+
+    private static final int CHUNKS = 64;
+
+    private static final String CHUNK = "x".repeat(1024 * 1024 - 1) + "\n";
+
+    // Tomcat's servlet output stream, found on the stack of any thread inside a write
+    private static final String SERVLET_OUTPUT = "org.apache.catalina.connector.CoyoteOutputStream";
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private ReactiveReportService reactiveReportService;
+
+    @Test
+    public void testGenerateReferralReportStreamsCsv() throws Exception {
+        when(reactiveReportService.generateCsvReport()).thenReturn(Flux.just("Name,Email\n", "User 1,user1@example.com\n"));
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/reactive/report/referrals")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("attachment; filename=referral_report.csv", response.headers().firstValue("Content-Disposition").orElse(null));
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/csv"));
+        assertEquals("Name,Email\nUser 1,user1@example.com\n", response.body());
+    }
+
+    @Test
+    public void testGenerateReferralReportFailureBeforeFirstChunk() throws Exception {
+        when(reactiveReportService.generateCsvReport()).thenReturn(Flux.error(new IllegalStateException("Mongo is down")));
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/reactive/report/referrals")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(500, response.statusCode());
+    }
+
+    // A client that stops reading fills the socket buffers. No thread may wait in a servlet write meanwhile, a blocking
+    // write would park the thread handing chunks to the response until the client reads again.
+    @Test
+    public void testSlowClientDoesNotPinThread() throws Exception {
+        // Chunks arrive on their own thread, as they do from the reactive Mongo driver
+        Scheduler scheduler = Schedulers.newSingle("report-chunks");
+        AtomicInteger emitted = new AtomicInteger();
+        when(reactiveReportService.generateCsvReport()).thenReturn(Flux.range(0, CHUNKS)
+                .publishOn(scheduler, 1)
+                .doOnNext(i -> emitted.incrementAndGet())
+                .map(i -> CHUNK));
+
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("localhost", port));
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /api/reactive/report/referrals HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            // Not reading, wait until the server stops emitting because nothing more fits
+            int seen = -1;
+            while (seen != emitted.get()) {
+                seen = emitted.get();
+                Thread.sleep(500);
+            }
+            assertTrue(seen < CHUNKS, "The whole report fit in the socket buffers");
+
+            Thread.getAllStackTraces().forEach((thread, stack) -> {
+                for (StackTraceElement frame : stack) {
+                    assertNotEquals(SERVLET_OUTPUT, frame.getClassName(), thread.getName() + " is blocked on the slow client");
+                }
+            });
+
+            // Reading again resumes the download to the end
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[64 * 1024];
+            long read = 0;
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                read += n;
+            }
+            assertEquals(CHUNKS, emitted.get());
+            assertTrue(read > (long) CHUNKS * CHUNK.length());
+        } finally {
+            scheduler.dispose();
+        }
+    }
+}
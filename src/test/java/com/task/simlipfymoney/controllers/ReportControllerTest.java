@@ -1,12 +1,17 @@
 package com.task.simlipfymoney.controllers;
 
+import com.task.simlipfymoney.dtos.ReportJobResponse;
+import com.task.simlipfymoney.services.ReportJobService;
 import com.task.simlipfymoney.services.ReportService;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 class ReportControllerTest {
@@ -14,6 +19,9 @@ class ReportControllerTest {
     @Mock
     private ReportService reportService;
 
+    @Mock
+    private ReportJobService reportJobService;
+
     @Mock
     private HttpServletResponse response;
 
@@ -26,7 +34,22 @@ class ReportControllerTest {
 
     @Test
     void testGenerateReferralReport_CallsService() {
-        reportController.generateReferralReport(response);
-        verify(reportService, times(1)).generateCsvReport(response);
+        reportController.generateReferralReport(null, response);
+        verify(reportService, times(1)).generateCsvReport(response, null);
+    }
+
+    @Test
+    void testStartReportJob_ReturnsAccepted() {
+        ReportJobResponse job = ReportJobResponse.builder()
+                .jobId("job-1")
+                .status(ReportJobResponse.Status.PENDING)
+                .build();
+        when(reportJobService.startJob()).thenReturn(job);
+
+        ResponseEntity<ReportJobResponse> result = reportController.startReportJob();
+
+        assertEquals(HttpStatus.ACCEPTED, result.getStatusCode());
+        assertEquals("/api/report/jobs/job-1", result.getHeaders().getLocation().toString());
+        assertEquals(job, result.getBody());
     }
 }
@@ -1,12 +1,22 @@
 package com.task.simlipfymoney.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.simlipfymoney.dtos.BatchSignupResponse;
+import com.task.simlipfymoney.dtos.BatchSignupResult;
+import com.task.simlipfymoney.dtos.DownlineNode;
+import com.task.simlipfymoney.dtos.DownlineResponse;
+import com.task.simlipfymoney.dtos.ImportSummary;
+import com.task.simlipfymoney.dtos.LeaderboardEntry;
 import com.task.simlipfymoney.dtos.ProfileCompletionRequest;
+import com.task.simlipfymoney.dtos.ReferralCountResponse;
+import com.task.simlipfymoney.dtos.ReferredUsersPage;
 import com.task.simlipfymoney.dtos.SignupRequest;
 import com.task.simlipfymoney.dtos.UserResponse;
+import com.task.simlipfymoney.exceptions.BatchTooLargeException;
 import com.task.simlipfymoney.exceptions.DuplicateEmailException;
 import com.task.simlipfymoney.exceptions.InvalidReferralCodeException;
 import com.task.simlipfymoney.exceptions.UserNotFoundException;
+import com.task.simlipfymoney.services.UserImportService;
 import com.task.simlipfymoney.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -36,6 +46,9 @@ public class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserImportService userImportService;
+
     private SignupRequest signupRequest;
     private ProfileCompletionRequest profileCompletionRequest;
     private UserResponse userResponse;
@@ -87,16 +100,63 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.email").value("user1@example.com"));
     }
 
+    @Test
+    public void testSignupPasswordOverBcryptLimit() throws Exception {
+        signupRequest.setPassword("\u00e9".repeat(37));
+
+        mockMvc.perform(post("/api/user/signup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(signupRequest)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid password: must be at most 72 bytes in UTF-8"));
+        Mockito.verifyNoInteractions(userService);
+    }
+
+    @Test
+    public void testCompleteProfilePasswordOverBcryptLimit() throws Exception {
+        profileCompletionRequest.setPassword("x".repeat(73));
+
+        mockMvc.perform(post("/api/user/complete-profile")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(profileCompletionRequest)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid password: must be at most 72 bytes in UTF-8"));
+        Mockito.verifyNoInteractions(userService);
+    }
+
     @Test
     public void testGetReferredUsers() throws Exception {
-        when(userService.getReferredUsers(Mockito.anyString())).thenReturn(List.of(userResponse));
+        when(userService.getReferredUsers(Mockito.anyString(), Mockito.any(), Mockito.any()))
+                .thenReturn(new ReferredUsersPage(List.of(userResponse), null));
 
         mockMvc.perform(get("/api/user/referred/ABC123"))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(UserController.NEXT_CURSOR_HEADER))
                 .andExpect(jsonPath("$[0].name").value("User 1"))
                 .andExpect(jsonPath("$[0].email").value("user1@example.com"));
     }
 
+    @Test
+    public void testGetReferredUsersNextPage() throws Exception {
+        when(userService.getReferredUsers("ABC123", "CURSOR1", 1))
+                .thenReturn(new ReferredUsersPage(List.of(userResponse), "CURSOR2"));
+
+        mockMvc.perform(get("/api/user/referred/ABC123").param("cursor", "CURSOR1").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(UserController.NEXT_CURSOR_HEADER, "CURSOR2"))
+                .andExpect(jsonPath("$[0].email").value("user1@example.com"));
+    }
+
+    @Test
+    public void testGetReferralCount() throws Exception {
+        when(userService.getReferralCount("ABC123")).thenReturn(new ReferralCountResponse("ABC123", 5, 3));
+
+        mockMvc.perform(get("/api/user/referred/ABC123/count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.signedUpReferrals").value(5))
+                .andExpect(jsonPath("$.completedReferrals").value(3));
+    }
+
     @Test
     public void testSignupDuplicateEmailException() throws Exception {
         when(userService.signup(Mockito.any(SignupRequest.class)))
@@ -125,7 +185,7 @@ public class UserControllerTest {
 
     @Test
     public void testGetReferredUsersInvalidReferralCodeException() throws Exception {
-        when(userService.getReferredUsers(Mockito.anyString()))
+        when(userService.getReferredUsers(Mockito.anyString(), Mockito.any(), Mockito.any()))
                 .thenThrow(new InvalidReferralCodeException("Invalid referral code provided."));
 
         mockMvc.perform(get("/api/user/referred/INVALID123"))
@@ -133,4 +193,75 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.message")
                         .value("Invalid referral code."));
     }
+
+    @Test
+    public void testGetDownline() throws Exception {
+        DownlineNode node = new DownlineNode();
+        node.setEmail("a@example.com");
+        node.setDepth(1);
+        when(userService.getDownline("REF123", 2))
+                .thenReturn(new DownlineResponse("REF123", 2, List.of(node), false));
+
+        mockMvc.perform(get("/api/user/downline/REF123").param("depth", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.depth").value(2))
+                .andExpect(jsonPath("$.truncated").value(false))
+                .andExpect(jsonPath("$.nodes[0].email").value("a@example.com"));
+    }
+
+    @Test
+    public void testGetLeaderboard() throws Exception {
+        when(userService.getLeaderboard(5))
+                .thenReturn(List.of(new LeaderboardEntry(1, "REF123", 7, 9)));
+
+        mockMvc.perform(get("/api/user/leaderboard").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].rank").value(1))
+                .andExpect(jsonPath("$[0].referralCode").value("REF123"))
+                .andExpect(jsonPath("$[0].completedReferrals").value(7));
+    }
+
+    @Test
+    public void testSignupBatch() throws Exception {
+        BatchSignupResult result = BatchSignupResult.builder()
+                .index(0)
+                .email("user1@example.com")
+                .status(BatchSignupResult.Status.CREATED)
+                .user(userResponse)
+                .build();
+        when(userService.signupBatch(Mockito.anyList()))
+                .thenReturn(new BatchSignupResponse(1, 0, List.of(result)));
+
+        mockMvc.perform(post("/api/user/signup/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(signupRequest))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.results[0].status").value("CREATED"));
+    }
+
+    @Test
+    public void testSignupBatchTooLargeException() throws Exception {
+        when(userService.signupBatch(Mockito.anyList()))
+                .thenThrow(new BatchTooLargeException("Batch of 1001 users exceeds the maximum of 1000"));
+
+        mockMvc.perform(post("/api/user/signup/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(signupRequest))))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.message").value("Too many users in batch."));
+    }
+
+    @Test
+    public void testImportUsers() throws Exception {
+        when(userImportService.importCsv(Mockito.any()))
+                .thenReturn(ImportSummary.builder().rowsRead(2).created(2).completed(true).errors(List.of()).build());
+
+        mockMvc.perform(post("/api/user/import")
+                        .contentType("text/csv")
+                        .content("name,email,password\nUser 1,user1@example.com,secret\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.completed").value(true));
+    }
 }
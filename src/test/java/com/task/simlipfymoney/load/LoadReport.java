@@ -0,0 +1,93 @@
+package com.task.simlipfymoney.load;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latencies and failures per endpoint for one measured run, percentiles are exact over every request
+final class LoadReport {
+
+    enum Endpoint {
+        SIGNUP("POST /api/user/signup"),
+        COMPLETE_PROFILE("POST /api/user/complete-profile"),
+        REFERRED_USERS("GET  /api/user/referred/{code}"),
+        REPORT("GET  /api/report/referrals");
+
+        private final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Map<Endpoint, Queue<Long>> latencies = new EnumMap<>(Endpoint.class);
+
+    private final Map<Endpoint, LongAdder> failures = new EnumMap<>(Endpoint.class);
+
+    LoadReport() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.put(endpoint, new ConcurrentLinkedQueue<>());
+            failures.put(endpoint, new LongAdder());
+        }
+    }
+
+    // Failures are non 2xx responses and I/O errors, their latency is recorded too
+    void record(Endpoint endpoint, long nanos, boolean success) {
+        latencies.get(endpoint).add(nanos);
+        if (!success) {
+            failures.get(endpoint).increment();
+        }
+    }
+
+    long requests(Endpoint endpoint) {
+        return latencies.get(endpoint).size();
+    }
+
+    long successes(Endpoint endpoint) {
+        return requests(endpoint) - failures.get(endpoint).sum();
+    }
+
+    String format(String title, Duration elapsed) {
+        double seconds = elapsed.toNanos() / 1e9;
+        StringBuilder table = new StringBuilder(String.format("%n%s, %.1f s%n", title, seconds));
+        table.append(String.format("%-34s %9s %8s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+
+        long[] all = new long[0];
+        long allFailures = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            long[] sorted = latencies.get(endpoint).stream().mapToLong(Long::longValue).sorted().toArray();
+            table.append(row(endpoint.label, sorted, failures.get(endpoint).sum(), seconds));
+            all = concat(all, sorted);
+            allFailures += failures.get(endpoint).sum();
+        }
+        Arrays.sort(all);
+        return table.append(row("Total", all, allFailures, seconds)).toString();
+    }
+
+    private static String row(String label, long[] sorted, long failures, double seconds) {
+        return String.format("%-34s %9d %8d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                label, sorted.length, failures, sorted.length / seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99), percentile(sorted, 1.0));
+    }
+
+    // Nearest rank percentile in milliseconds
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
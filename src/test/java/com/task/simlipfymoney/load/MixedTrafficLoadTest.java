@@ -0,0 +1,272 @@
+package com.task.simlipfymoney.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.simlipfymoney.InProcessMongoConfig;
+import com.task.simlipfymoney.dtos.ProfileCompletionRequest;
+import com.task.simlipfymoney.dtos.SignupRequest;
+import com.task.simlipfymoney.entities.ReferralEdge;
+import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.load.LoadReport.Endpoint;
+import com.task.simlipfymoney.repositories.ReferralEdgeRepository;
+import com.task.simlipfymoney.repositories.UserRepository;
+import com.task.simlipfymoney.services.ReferralCodeAllocator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Drives a mix of the user and report endpoints over HTTP against the full application and an in-process Mongo.
+// Subclasses pick the request thread model, the table logged at the end gives throughput and latency per endpoint.
+// ThreadModelLoadTest measures the thread models on one endpoint with stubbed database latency instead.
+// Clients, server and database share the machine, so numbers compare configurations rather than size production.
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "logging.level.com.task.simlipfymoney.services=WARN")
+@Import(InProcessMongoConfig.class)
+@DirtiesContext
+abstract class MixedTrafficLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(MixedTrafficLoadTest.class);
+
+    private static final String PASSWORD = "password123";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReferralEdgeRepository referralEdgeRepository;
+
+    @Autowired
+    private ReferralCodeAllocator referralCodeAllocator;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Concurrent clients, each sends its next request as soon as the previous one completes
+    @Value("${load.clients:32}")
+    private int clients;
+
+    @Value("${load.warmup:PT5S}")
+    private Duration warmup;
+
+    @Value("${load.duration:PT20S}")
+    private Duration duration;
+
+    // A stuck request counts as an error instead of hanging the run
+    @Value("${load.request-timeout:PT30S}")
+    private Duration requestTimeout;
+
+    @Value("${load.referrers:200}")
+    private int referrers;
+
+    @Value("${load.referrals-per-referrer:10}")
+    private int referralsPerReferrer;
+
+    // Percentage of requests per endpoint, in Endpoint order
+    @Value("${load.mix:20,20,55,5}")
+    private int[] mix;
+
+    private final List<String> referralCodes = new ArrayList<>();
+
+    // Signed up during the run and not yet completed, feeds the profile completion requests
+    private final Queue<String> pendingProfiles = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private HttpClient client;
+
+    @Test
+    void mixedTraffic() throws Exception {
+        seed();
+        try (ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .build();
+
+            run(warmup, new LoadReport());
+            LoadReport report = new LoadReport();
+            long start = System.nanoTime();
+            run(duration, report);
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            logger.info(report.format(String.format("%s threads, %d clients, mix %s",
+                    virtualThreads ? "Virtual" : "Platform", clients, Arrays.toString(mix)), elapsed));
+            for (Endpoint endpoint : Endpoint.values()) {
+                if (mix[endpoint.ordinal()] > 0) {
+                    assertTrue(report.successes(endpoint) > 0, "No successful requests to " + endpoint);
+                }
+            }
+        }
+    }
+
+    // Referrers whose completed referrals are listed by the referred users requests, inserted directly with one shared hash
+    private void seed() {
+        String passwordHash = passwordEncoder.encode(PASSWORD);
+        Iterator<String> codes = referralCodeAllocator.allocate(referrers * (referralsPerReferrer + 1)).iterator();
+
+        List<User> users = new ArrayList<>();
+        List<ReferralEdge> edges = new ArrayList<>();
+        for (int i = 0; i < referrers; i++) {
+            String referralCode = codes.next();
+            referralCodes.add(referralCode);
+            users.add(seedUser("referrer" + i + "@example.com", passwordHash, referralCode, null));
+            for (int j = 0; j < referralsPerReferrer; j++) {
+                String email = "referred" + i + "-" + j + "@example.com";
+                users.add(seedUser(email, passwordHash, codes.next(), referralCode));
+                ReferralEdge edge = new ReferralEdge();
+                edge.setReferrerCode(referralCode);
+                edge.setReferredEmail(email);
+                edges.add(edge);
+            }
+        }
+        userRepository.insert(users);
+        referralEdgeRepository.insert(edges);
+        logger.info("Seeded {} users and {} referral edges.", users.size(), edges.size());
+    }
+
+    private User seedUser(String email, String passwordHash, String referralCode, String referrerCode) {
+        User user = new User();
+        user.setName(email.substring(0, email.indexOf('@')));
+        user.setEmail(email);
+        user.setPassword(passwordHash);
+        user.setReferralCode(referralCode);
+        user.setReferrerCode(referrerCode);
+        user.setProfileCompleted(true);
+        user.setPhoneNumber("9876543210");
+        user.setAddress("12 MG Road, Bengaluru");
+        return user;
+    }
+
+    private void run(Duration runFor, LoadReport report) throws InterruptedException {
+        long deadline = System.nanoTime() + runFor.toNanos();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        send(pickEndpoint(), report);
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    private Endpoint pickEndpoint() {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        for (Endpoint endpoint : Endpoint.values()) {
+            roll -= mix[endpoint.ordinal()];
+            if (roll < 0) {
+                return endpoint;
+            }
+        }
+        return Endpoint.REFERRED_USERS;
+    }
+
+    private void send(Endpoint endpoint, LoadReport report) throws Exception {
+        String pendingEmail = endpoint == Endpoint.COMPLETE_PROFILE ? pendingProfiles.poll() : null;
+        if (endpoint == Endpoint.COMPLETE_PROFILE && pendingEmail == null) {
+            // Nothing left to complete, sign someone up instead so the next completion has a user
+            endpoint = Endpoint.SIGNUP;
+        }
+
+        String signupEmail = "load" + sequence.incrementAndGet() + "@example.com";
+        HttpRequest request = switch (endpoint) {
+            case SIGNUP -> post("/api/user/signup", signupRequest(signupEmail));
+            case COMPLETE_PROFILE -> post("/api/user/complete-profile", profileCompletionRequest(pendingEmail));
+            case REFERRED_USERS -> get("/api/user/referred/" + randomReferralCode());
+            case REPORT -> get("/api/report/referrals");
+        };
+
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            success = response.statusCode() / 100 == 2;
+        } catch (IOException e) {
+            success = false;
+        }
+        report.record(endpoint, System.nanoTime() - start, success);
+
+        if (success && endpoint == Endpoint.SIGNUP) {
+            pendingProfiles.add(signupEmail);
+        }
+    }
+
+    private SignupRequest signupRequest(String email) {
+        SignupRequest request = new SignupRequest();
+        request.setName("Load User");
+        request.setEmail(email);
+        request.setPassword(PASSWORD);
+        // Half of the signups come through a referral link
+        if (ThreadLocalRandom.current().nextBoolean()) {
+            request.setReferrerCode(randomReferralCode());
+        }
+        return request;
+    }
+
+    private ProfileCompletionRequest profileCompletionRequest(String email) {
+        ProfileCompletionRequest request = new ProfileCompletionRequest();
+        request.setName("Load User");
+        request.setEmail(email);
+        request.setPassword(PASSWORD);
+        request.setPhoneNumber("9876543210");
+        request.setAddress("12 MG Road, Bengaluru");
+        return request;
+    }
+
+    private String randomReferralCode() {
+        return referralCodes.get(ThreadLocalRandom.current().nextInt(referralCodes.size()));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).timeout(requestTimeout).GET().build();
+    }
+
+    private HttpRequest post(String path, Object body) throws Exception {
+        return HttpRequest.newBuilder(uri(path))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,8 @@
+package com.task.simlipfymoney.load;
+
+import org.springframework.test.context.TestPropertySource;
+
+// Requests served by the Tomcat pool of server.tomcat.threads.max platform threads
+@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+class PlatformThreadModelLoadTest extends ThreadModelLoadTest {
+}
@@ -0,0 +1,8 @@
+package com.task.simlipfymoney.load;
+
+import org.springframework.test.context.TestPropertySource;
+
+// Mixed traffic with requests served by the Tomcat worker pool
+@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+class PlatformThreadsMixedTrafficLoadTest extends MixedTrafficLoadTest {
+}
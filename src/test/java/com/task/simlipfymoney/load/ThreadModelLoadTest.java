@@ -0,0 +1,192 @@
+package com.task.simlipfymoney.load;
+
+import com.task.simlipfymoney.entities.ReferralEdge;
+import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.load.LoadReport.Endpoint;
+import com.task.simlipfymoney.repositories.ReferralEdgeRepository;
+import com.task.simlipfymoney.repositories.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+// Compares the Tomcat platform thread pool with virtual threads when every handler blocks on the database.
+// The user and edge repositories are replaced by stubs that sleep for load.thread-model.db-latency per call, so the run
+// measures how many blocked requests each thread model keeps in flight rather than the database itself.
+// Clients beyond server.tomcat.threads.max wait for a pool thread, with virtual threads every connection is served at once.
+// The long default latency keeps the pool, not the CPU shared by clients and server, as the limit on a small machine.
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.data.mongodb.uri=mongodb://localhost:27017",
+        "spring.data.mongodb.auto-index-creation=false",
+        "logging.level.com.task.simlipfymoney.services=WARN"
+})
+@Import(ThreadModelLoadTest.SlowRepositories.class)
+@DirtiesContext
+abstract class ThreadModelLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadModelLoadTest.class);
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${server.tomcat.threads.max:200}")
+    private int tomcatThreads;
+
+    // Several times the Tomcat pool, so the platform run queues requests
+    @Value("${load.thread-model.clients:600}")
+    private int clients;
+
+    @Value("${load.warmup:PT5S}")
+    private Duration warmup;
+
+    @Value("${load.duration:PT20S}")
+    private Duration duration;
+
+    @Value("${load.request-timeout:PT30S}")
+    private Duration requestTimeout;
+
+    @Value("${load.thread-model.db-latency:PT0.5S}")
+    private Duration dbLatency;
+
+    // Distinct referral codes requested, each is loaded into the referrer cache once
+    @Value("${load.referrers:200}")
+    private int referrers;
+
+    private HttpClient client;
+
+    @Test
+    void referredUsersUnderBlockingLatency() throws Exception {
+        try (ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .build();
+
+            run(warmup, new LoadReport());
+            LoadReport report = new LoadReport();
+            long start = System.nanoTime();
+            run(duration, report);
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            logger.info(report.format(String.format("%s, %d clients, %s per repository call",
+                    virtualThreads ? "Virtual threads" : "Platform threads (" + tomcatThreads + ")",
+                    clients, dbLatency), elapsed));
+            assertTrue(report.successes(Endpoint.REFERRED_USERS) > 0, "No successful requests");
+        }
+    }
+
+    private void run(Duration runFor, LoadReport report) throws InterruptedException {
+        long deadline = System.nanoTime() + runFor.toNanos();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        send(report);
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    private void send(LoadReport report) throws Exception {
+        String referralCode = "CODE" + ThreadLocalRandom.current().nextInt(referrers);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/user/referred/" + referralCode))
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            success = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() / 100 == 2;
+        } catch (IOException e) {
+            success = false;
+        }
+        report.record(Endpoint.REFERRED_USERS, System.nanoTime() - start, success);
+    }
+
+    // Every referral code has one completed referral. Stub only mocks, a recorded invocation per request would dominate.
+    @TestConfiguration
+    static class SlowRepositories {
+
+        @Bean
+        @Primary
+        UserRepository slowUserRepository(@Value("${load.thread-model.db-latency:PT0.5S}") Duration dbLatency) {
+            UserRepository repository = mock(UserRepository.class, withSettings().stubOnly());
+            when(repository.findByReferralCode(anyString())).thenAnswer(slow(dbLatency, invocation -> {
+                User referrer = new User();
+                referrer.setReferralCode(invocation.getArgument(0));
+                return Optional.of(referrer);
+            }));
+            when(repository.findByEmailInAndProfileCompletedTrue(any())).thenAnswer(slow(dbLatency, invocation -> {
+                Collection<String> emails = invocation.getArgument(0);
+                return Optional.of(emails.stream().map(SlowRepositories::referredUser).toList());
+            }));
+            return repository;
+        }
+
+        @Bean
+        @Primary
+        ReferralEdgeRepository slowReferralEdgeRepository(@Value("${load.thread-model.db-latency:PT0.5S}") Duration dbLatency) {
+            ReferralEdgeRepository repository = mock(ReferralEdgeRepository.class, withSettings().stubOnly());
+            when(repository.findByReferrerCodeOrderByIdAsc(anyString(), any(Limit.class))).thenAnswer(slow(dbLatency, invocation -> {
+                ReferralEdge edge = new ReferralEdge();
+                edge.setId("000000000000000000000001");
+                edge.setReferrerCode(invocation.getArgument(0));
+                edge.setReferredEmail("referred-" + invocation.getArgument(0) + "@example.com");
+                return List.of(edge);
+            }));
+            return repository;
+        }
+
+        private static Answer<Object> slow(Duration latency, Answer<Object> answer) {
+            return invocation -> {
+                Thread.sleep(latency);
+                return answer.answer(invocation);
+            };
+        }
+
+        private static User referredUser(String email) {
+            User user = new User();
+            user.setName("Referred");
+            user.setEmail(email);
+            user.setProfileCompleted(true);
+            return user;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.task.simlipfymoney.load;
+
+import org.springframework.test.context.TestPropertySource;
+
+// Every request served on its own virtual thread
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadModelLoadTest extends ThreadModelLoadTest {
+}
@@ -0,0 +1,128 @@
+package com.task.simlipfymoney.repositories;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.task.simlipfymoney.entities.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserRepositoryTest extends UserRepositoryContractTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @TempDir
+    Path tempDir;
+
+    private InMemoryUserRepository userRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userRepository = open(tempDir.resolve("users.jsonl"));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        userRepository.close();
+    }
+
+    @Override
+    protected UserRepository repository() {
+        return userRepository;
+    }
+
+    @Test
+    void testSnapshotReplaysWritesAndDeletes() throws Exception {
+        User kept = userRepository.insert(user("a@example.com", "AAA111", "ROOT00", false));
+        User deleted = userRepository.insert(user("b@example.com", "BBB222", "ROOT00", false));
+        kept.setProfileCompleted(true);
+        userRepository.save(kept);
+        userRepository.delete(deleted);
+        userRepository.close();
+
+        InMemoryUserRepository reopened = open(tempDir.resolve("users.jsonl"));
+        try {
+            assertEquals(1, reopened.count());
+            User replayed = reopened.findByReferralCode("AAA111").orElseThrow();
+            assertEquals(kept.getId(), replayed.getId());
+            assertTrue(replayed.isProfileCompleted());
+            assertEquals(kept.getCreatedAt(), replayed.getCreatedAt());
+            assertTrue(reopened.findByEmail("b@example.com").isEmpty());
+            // Indexes are rebuilt as well
+            assertThrows(DuplicateKeyException.class, () -> reopened.insert(user("a@example.com", "CCC333", null, false)));
+            assertEquals(1, reopened.findReferredBy(List.of("ROOT00"), 0).size());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void testSnapshotIsCompactedOnStartup() throws Exception {
+        User user = userRepository.insert(user("a@example.com", "AAA111", null, false));
+        for (int i = 0; i < 5; i++) {
+            user.setName("Name " + i);
+            userRepository.save(user);
+        }
+        userRepository.close();
+        Path path = tempDir.resolve("users.jsonl");
+        assertEquals(6, Files.readAllLines(path).size());
+
+        open(path).close();
+
+        assertEquals(1, Files.readAllLines(path).size());
+    }
+
+    @Test
+    void testTornLastLineIsIgnored() throws Exception {
+        userRepository.insert(user("a@example.com", "AAA111", null, false));
+        userRepository.close();
+        Path path = tempDir.resolve("users.jsonl");
+        Files.writeString(path, "{\"id\":\"67f0c0ffee\",\"user\":{\"ema", StandardOpenOption.APPEND);
+
+        InMemoryUserRepository reopened = open(path);
+        try {
+            assertEquals(1, reopened.count());
+            reopened.insert(user("b@example.com", "BBB222", null, false));
+        } finally {
+            reopened.close();
+        }
+
+        InMemoryUserRepository again = open(path);
+        try {
+            assertEquals(2, again.count());
+        } finally {
+            again.close();
+        }
+    }
+
+    @Test
+    void testWithoutSnapshotPathNothingIsWritten() throws Exception {
+        InMemoryUserRepository volatileStore = open(null);
+
+        volatileStore.insert(user("a@example.com", "AAA111", null, false));
+
+        assertEquals(1, volatileStore.count());
+        try (var files = Files.list(tempDir)) {
+            assertEquals(List.of(), files.filter(file -> !file.getFileName().toString().startsWith("users")).toList());
+        }
+        volatileStore.close();
+    }
+
+    private InMemoryUserRepository open(Path path) throws Exception {
+        InMemoryUserRepository store = new InMemoryUserRepository();
+        ReflectionTestUtils.setField(store, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(store, "snapshotPath", path == null ? "" : path.toString());
+        store.init();
+        return store;
+    }
+}
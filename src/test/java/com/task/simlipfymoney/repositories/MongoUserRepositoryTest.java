@@ -0,0 +1,27 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.InProcessMongoConfig;
+import com.task.simlipfymoney.configs.MongoConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+
+// The Mongo backed repository against the in-process Mongo stand-in, with the unique indexes created on startup
+@DataMongoTest(properties = "spring.data.mongodb.auto-index-creation=true")
+@Import({InProcessMongoConfig.class, MongoConfig.class})
+class MongoUserRepositoryTest extends UserRepositoryContractTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+    }
+
+    @Override
+    protected UserRepository repository() {
+        return userRepository;
+    }
+}
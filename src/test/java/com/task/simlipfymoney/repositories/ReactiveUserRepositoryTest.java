@@ -0,0 +1,73 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.InProcessMongoConfig;
+import com.task.simlipfymoney.configs.MongoConfig;
+import com.task.simlipfymoney.entities.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The reactive repository against the in-process Mongo stand-in, with the auditing the reactive signup relies on
+@DataMongoTest
+@Import({InProcessMongoConfig.class, MongoConfig.class})
+class ReactiveUserRepositoryTest {
+
+    @Autowired
+    private ReactiveUserRepository reactiveUserRepository;
+
+    @BeforeEach
+    void setUp() {
+        reactiveUserRepository.deleteAll().block();
+    }
+
+    @Test
+    void testInsertSetsAuditFields() {
+        User saved = reactiveUserRepository.insert(user()).block();
+
+        assertNotNull(saved.getCreatedAt());
+        assertNotNull(saved.getLastModifiedAt());
+        User found = reactiveUserRepository.findByEmail("user1@example.com").block();
+        assertNotNull(found.getCreatedAt());
+        assertNotNull(found.getLastModifiedAt());
+    }
+
+    @Test
+    void testUpdateProfileWritesOnlyProfileFields() {
+        User saved = reactiveUserRepository.insert(user()).block();
+        Instant createdAt = reactiveUserRepository.findById(saved.getId()).block().getCreatedAt();
+
+        User completed = new User();
+        completed.setId(saved.getId());
+        completed.setName("User 1");
+        completed.setPhoneNumber("1234567890");
+        completed.setAddress("Lko");
+        completed.setPassword("$2a$04$hashed");
+        completed.setProfileCompleted(true);
+        reactiveUserRepository.updateProfile(completed).block();
+
+        User found = reactiveUserRepository.findById(saved.getId()).block();
+        assertTrue(found.isProfileCompleted());
+        assertEquals("Lko", found.getAddress());
+        assertEquals("$2a$04$hashed", found.getPassword());
+        // Fields outside the profile are left as they were
+        assertEquals("ABC123", found.getReferralCode());
+        assertEquals("REF123", found.getReferrerCode());
+        assertEquals(createdAt, found.getCreatedAt());
+        assertFalse(found.getLastModifiedAt().isBefore(createdAt));
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setEmail("user1@example.com");
+        user.setPassword("password123");
+        user.setReferralCode("ABC123");
+        user.setReferrerCode("REF123");
+        return user;
+    }
+}
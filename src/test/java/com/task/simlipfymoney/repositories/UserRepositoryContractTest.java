@@ -0,0 +1,331 @@
+package com.task.simlipfymoney.repositories;
+
+import com.task.simlipfymoney.entities.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Behaviour every UserRepository implementation must share, run against Mongo and the in-memory store
+abstract class UserRepositoryContractTest {
+
+    protected abstract UserRepository repository();
+
+    @Test
+    void testInsertAssignsIdAndTimestamps() {
+        User user = repository().insert(user("a@example.com", "AAA111", null, false));
+
+        assertNotNull(user.getId());
+        assertNotNull(user.getCreatedAt());
+        assertNotNull(user.getLastModifiedAt());
+        assertEquals("a@example.com", repository().findById(user.getId()).orElseThrow().getEmail());
+    }
+
+    @Test
+    void testUniqueEmailAndReferralCode() {
+        repository().insert(user("a@example.com", "AAA111", null, false));
+
+        DuplicateKeyException email = assertThrows(DuplicateKeyException.class,
+                () -> repository().insert(user("a@example.com", "BBB222", null, false)));
+        assertTrue(email.getMessage().contains("index: email "), email.getMessage());
+
+        DuplicateKeyException referralCode = assertThrows(DuplicateKeyException.class,
+                () -> repository().insert(user("b@example.com", "AAA111", null, false)));
+        assertTrue(referralCode.getMessage().contains("index: referralCode "), referralCode.getMessage());
+
+        assertEquals(1, repository().count());
+    }
+
+    // The unique indexes are not sparse, a missing referral code is taken by the first user without one
+    @Test
+    void testMissingReferralCodeIsUniqueToo() {
+        repository().insert(user("a@example.com", null, null, false));
+
+        assertThrows(DuplicateKeyException.class, () -> repository().insert(user("b@example.com", null, null, false)));
+    }
+
+    @Test
+    void testSaveMovesUniqueKeys() {
+        User user = repository().insert(user("a@example.com", "AAA111", null, false));
+        user.setEmail("renamed@example.com");
+        repository().save(user);
+
+        assertTrue(repository().findByEmail("a@example.com").isEmpty());
+        assertEquals(user.getId(), repository().findByEmail("renamed@example.com").orElseThrow().getId());
+        assertDoesNotThrow(() -> repository().insert(user("a@example.com", "BBB222", null, false)));
+    }
+
+    @Test
+    void testReturnedUsersAreCopies() {
+        User user = repository().insert(user("a@example.com", "AAA111", null, false));
+
+        repository().findByReferralCode("AAA111").orElseThrow().setName("Changed");
+
+        assertEquals("a@example.com", repository().findByReferralCode("AAA111").orElseThrow().getName());
+        assertEquals(user.getId(), repository().findByReferralCode("AAA111").orElseThrow().getId());
+    }
+
+    @Test
+    void testFindByEmailInAndProfileCompletedTrue() {
+        repository().insert(user("a@example.com", "AAA111", null, true));
+        repository().insert(user("b@example.com", "BBB222", null, false));
+        repository().insert(user("c@example.com", "CCC333", null, true));
+
+        List<User> found = repository().findByEmailInAndProfileCompletedTrue(
+                List.of("c@example.com", "b@example.com", "a@example.com", "missing@example.com")).orElseThrow();
+
+        assertEquals(Set.of("a@example.com", "c@example.com"), found.stream().map(User::getEmail).collect(Collectors.toSet()));
+        assertTrue(repository().findByEmailInAndProfileCompletedTrue(List.of("b@example.com")).orElse(List.of()).isEmpty());
+    }
+
+    @Test
+    void testInsertUnorderedKeepsGoingPastDuplicates() {
+        repository().insert(user("taken@example.com", "AAA111", null, false));
+
+        Map<Integer, String> errors = repository().insertUnordered(List.of(
+                user("new1@example.com", "BBB222", null, false),
+                user("taken@example.com", "CCC333", null, false),
+                user("new2@example.com", "AAA111", null, false),
+                user("new3@example.com", "DDD444", null, false)));
+
+        assertEquals(Set.of(1, 2), errors.keySet());
+        assertTrue(errors.get(1).contains("index: email "), errors.get(1));
+        assertTrue(errors.get(2).contains("index: referralCode "), errors.get(2));
+        assertEquals(3, repository().count());
+    }
+
+    @Test
+    void testStreamForReportProjectsReportFields() {
+        repository().insert(user("a@example.com", "AAA111", "ZZZ999", true));
+
+        List<User> rows = repository().streamForReport(100).collect(Collectors.toList());
+
+        assertEquals(1, rows.size());
+        assertEquals("AAA111", rows.get(0).getReferralCode());
+        assertEquals("ZZZ999", rows.get(0).getReferrerCode());
+        assertEquals("1234567890", rows.get(0).getPhoneNumber());
+        assertNull(rows.get(0).getPassword());
+        assertNull(rows.get(0).getCreatedAt());
+    }
+
+    @Test
+    void testFindForReportByIdRange() {
+        for (int i = 0; i < 6; i++) {
+            repository().insert(user("u" + i + "@example.com", "CODE0" + i, null, false));
+        }
+        List<String> ids = repository().findAll(Sort.by("id")).stream().map(User::getId).collect(Collectors.toList());
+
+        List<Object> boundaries = repository().findIdBoundaries(3);
+        assertFalse(boundaries.isEmpty());
+
+        List<String> page = repository().findForReport(null, null, ids.get(2), 100).stream().map(User::getId).collect(Collectors.toList());
+        assertEquals(ids.subList(0, 2), page);
+        page = repository().findForReport(ids.get(2), null, null, 100).stream().map(User::getId).collect(Collectors.toList());
+        assertEquals(ids.subList(2, 6), page);
+    }
+
+    @Test
+    void testFindForReportPagesAfterLastId() {
+        for (int i = 0; i < 6; i++) {
+            repository().insert(user("u" + i + "@example.com", "CODE0" + i, null, false));
+        }
+        List<String> ids = repository().findAll(Sort.by("id")).stream().map(User::getId).collect(Collectors.toList());
+
+        List<User> first = repository().findForReport(ids.get(1), null, ids.get(5), 2);
+        assertEquals(ids.subList(1, 3), first.stream().map(User::getId).collect(Collectors.toList()));
+        assertNull(first.get(0).getPassword());
+
+        List<User> second = repository().findForReport(ids.get(1), first.get(1).getId(), ids.get(5), 2);
+        assertEquals(ids.subList(3, 5), second.stream().map(User::getId).collect(Collectors.toList()));
+        assertTrue(repository().findForReport(ids.get(1), ids.get(4), ids.get(5), 2).isEmpty());
+    }
+
+    @Test
+    void testStreamForReportModifiedSinceAndTouch() throws Exception {
+        repository().insert(user("a@example.com", "AAA111", null, false));
+        repository().insert(user("b@example.com", "BBB222", null, false));
+        Thread.sleep(5);
+        Instant since = Instant.now();
+        Thread.sleep(5);
+
+        assertEquals(0, repository().streamForReportModifiedSince(since, 100).count());
+
+        repository().touchByReferralCode("BBB222");
+        Instant touchedBy = Instant.now();
+
+        // Set from the application clock like the report watermark, not by the database
+        Instant touched = repository().findByEmail("b@example.com").orElseThrow().getLastModifiedAt();
+        assertFalse(touched.isBefore(since.truncatedTo(ChronoUnit.MILLIS)));
+        assertFalse(touched.isAfter(touchedBy));
+
+        List<String> modified = repository().streamForReportModifiedSince(since, 100).map(User::getEmail).collect(Collectors.toList());
+        assertEquals(List.of("b@example.com"), modified);
+    }
+
+    @Test
+    void testUpdateProfilesSetsOnlyProfileFields() throws Exception {
+        User user = repository().insert(user("a@example.com", "AAA111", "ROOT00", false));
+        Instant createdAt = repository().findById(user.getId()).orElseThrow().getCreatedAt();
+        User referrer = repository().insert(user("root@example.com", "ROOT00", null, true));
+        Thread.sleep(5);
+        Instant since = Instant.now();
+        Thread.sleep(5);
+
+        User update = new User();
+        update.setId(user.getId());
+        update.setName("Completed");
+        update.setPhoneNumber("9999999999");
+        update.setAddress("Pune");
+        update.setProfileCompleted(true);
+        update.setPassword("hashed");
+        update.setEmail("ignored@example.com");
+        repository().updateProfiles(List.of(update), Set.of("ROOT00"));
+
+        User updated = repository().findById(user.getId()).orElseThrow();
+        assertEquals("Completed", updated.getName());
+        assertEquals("9999999999", updated.getPhoneNumber());
+        assertEquals("Pune", updated.getAddress());
+        assertTrue(updated.isProfileCompleted());
+        assertEquals("hashed", updated.getPassword());
+        assertEquals("a@example.com", updated.getEmail());
+        assertEquals("ROOT00", updated.getReferrerCode());
+        assertEquals(createdAt, updated.getCreatedAt());
+        assertEquals(Set.of(user.getId(), referrer.getId()),
+                repository().streamForReportModifiedSince(since, 100).map(User::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void testUpdateProfilesLaterEntryWins() {
+        User user = repository().insert(user("a@example.com", "AAA111", null, false));
+        User first = repository().findById(user.getId()).orElseThrow();
+        first.setName("First");
+        User second = repository().findById(user.getId()).orElseThrow();
+        second.setName("Second");
+
+        repository().updateProfiles(List.of(first, second), Set.of());
+
+        assertEquals("Second", repository().findById(user.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void testFindReferredByProjectsAndLimits() {
+        repository().insert(user("root@example.com", "ROOT00", null, true));
+        repository().insert(user("a@example.com", "AAA111", "ROOT00", true));
+        repository().insert(user("b@example.com", "BBB222", "ROOT00", false));
+        repository().insert(user("c@example.com", "CCC333", "OTHER0", false));
+
+        List<User> referred = repository().findReferredBy(List.of("ROOT00", "OTHER0"), 10);
+        assertEquals(3, referred.size());
+        assertTrue(referred.stream().allMatch(user -> user.getPassword() == null && user.getPhoneNumber() == null));
+
+        assertEquals(2, repository().findReferredBy(List.of("ROOT00", "OTHER0"), 2).size());
+    }
+
+    @Test
+    void testFindReferredByFollowsReferrerChanges() {
+        User moved = repository().insert(user("a@example.com", "AAA111", "ROOT00", true));
+        User deleted = repository().insert(user("b@example.com", "BBB222", "ROOT00", true));
+
+        moved.setReferrerCode("OTHER0");
+        repository().save(moved);
+        repository().delete(deleted);
+
+        assertTrue(repository().findReferredBy(List.of("ROOT00"), 0).isEmpty());
+        assertEquals(List.of("a@example.com"), repository().findReferredBy(List.of("OTHER0"), 0).stream().map(User::getEmail).toList());
+    }
+
+    // Primitive properties of the probe always take part, profileCompleted is false unless ignored
+    @Test
+    void testQueryByExample() {
+        repository().insert(user("a@example.com", "AAA111", "ROOT00", true));
+        repository().insert(user("b@example.com", "BBB222", "ROOT00", false));
+        repository().insert(user("c@example.com", "CCC333", "OTHER0", true));
+
+        User probe = new User();
+        probe.setReferrerCode("ROOT00");
+        probe.setProfileCompleted(true);
+        Example<User> completed = Example.of(probe);
+        assertEquals(List.of("a@example.com"), repository().findAll(completed).stream().map(User::getEmail).toList());
+        assertEquals("a@example.com", repository().findOne(completed).orElseThrow().getEmail());
+        assertEquals(1, repository().count(completed));
+        assertTrue(repository().exists(completed));
+
+        probe.setProfileCompleted(false);
+        probe.setReferrerCode("OTHER0");
+        assertFalse(repository().exists(Example.of(probe)));
+
+        Example<User> referredByRoot = Example.of(probe, ExampleMatcher.matching()
+                .withIgnorePaths("profileCompleted")
+                .withMatcher("referrerCode", matcher -> matcher.startsWith().ignoreCase()));
+        probe.setReferrerCode("r");
+        assertEquals(List.of("b@example.com", "a@example.com"), repository().findAll(referredByRoot, Sort.by(Sort.Direction.DESC, "email"))
+                .stream().map(User::getEmail).toList());
+        Page<User> page = repository().findAll(referredByRoot, PageRequest.of(1, 1, Sort.by("email")));
+        assertEquals(2, page.getTotalElements());
+        assertEquals("b@example.com", page.getContent().get(0).getEmail());
+    }
+
+    @Test
+    void testQueryByExampleFluent() {
+        repository().insert(user("a@example.com", "AAA111", "ROOT00", true));
+        repository().insert(user("b@example.com", "BBB222", "ROOT00", true));
+
+        User probe = new User();
+        probe.setReferrerCode("ROOT00");
+        probe.setProfileCompleted(true);
+        Example<User> example = Example.of(probe);
+
+        List<User> projected = repository().findBy(example, query -> query.sortBy(Sort.by(Sort.Direction.DESC, "email")).project("email").all());
+        assertEquals(List.of("b@example.com", "a@example.com"), projected.stream().map(User::getEmail).toList());
+        assertTrue(projected.stream().allMatch(user -> user.getId() != null && user.getPassword() == null));
+        long count = repository().findBy(example, FluentQuery.FetchableFluentQuery::count);
+        assertEquals(2, count);
+        assertEquals("a@example.com", repository().findBy(example, query -> query.sortBy(Sort.by("email")).firstValue()).getEmail());
+        assertThrows(IncorrectResultSizeDataAccessException.class, () -> repository().findBy(example, FluentQuery.FetchableFluentQuery::oneValue));
+    }
+
+    @Test
+    void testFindExistingReferralCodes() {
+        repository().insert(user("a@example.com", "AAA111", null, false));
+        repository().insert(user("b@example.com", "BBB222", null, false));
+
+        assertEquals(Set.of("AAA111"), repository().findExistingReferralCodes(List.of("AAA111", "NOPE00")));
+    }
+
+    @Test
+    void testDeleteFreesUniqueKeys() {
+        User user = repository().insert(user("a@example.com", "AAA111", null, false));
+
+        repository().deleteById(user.getId());
+
+        assertTrue(repository().findByEmail("a@example.com").isEmpty());
+        assertDoesNotThrow(() -> repository().insert(user("a@example.com", "AAA111", null, false)));
+    }
+
+    protected static User user(String email, String referralCode, String referrerCode, boolean profileCompleted) {
+        User user = new User();
+        user.setName(email);
+        user.setEmail(email);
+        user.setPassword("secret");
+        user.setReferralCode(referralCode);
+        user.setReferrerCode(referrerCode);
+        user.setProfileCompleted(profileCompleted);
+        user.setPhoneNumber("1234567890");
+        user.setAddress("Lko");
+        return user;
+    }
+}
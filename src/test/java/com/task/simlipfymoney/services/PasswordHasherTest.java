@@ -0,0 +1,107 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.exceptions.PasswordHashingUnavailableException;
+import com.task.simlipfymoney.exceptions.PasswordTooLongException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PasswordHasherTest {
+
+    private final PasswordHasher passwordHasher = new PasswordHasher();
+
+    private ThreadPoolExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        ReflectionTestUtils.setField(passwordHasher, "passwordEncoder", new BCryptPasswordEncoder(4));
+        ReflectionTestUtils.setField(passwordHasher, "passwordHashExecutor", executor);
+        ReflectionTestUtils.setField(passwordHasher, "timeout", Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testHashAndMatches() {
+        String hash = passwordHasher.hash("secret");
+
+        assertNotEquals("secret", hash);
+        assertTrue(passwordHasher.matches("secret", hash));
+        assertFalse(passwordHasher.matches("wrong", hash));
+        assertFalse(passwordHasher.needsUpgrade(hash));
+    }
+
+    @Test
+    void testMatchesPlainTextPassword() {
+        assertTrue(passwordHasher.matches("secret", "secret"));
+        assertFalse(passwordHasher.matches("wrong", "secret"));
+        assertTrue(passwordHasher.needsUpgrade("secret"));
+        assertEquals(0, executor.getCompletedTaskCount());
+    }
+
+    @Test
+    void testUnknownAccountIsVerifiedAgainstDummyHash() {
+        BCryptPasswordEncoder encoder = spy(new BCryptPasswordEncoder(4));
+        ReflectionTestUtils.setField(passwordHasher, "passwordEncoder", encoder);
+
+        assertFalse(passwordHasher.matches("secret", null));
+        assertFalse(passwordHasher.matches("secret", null));
+
+        verify(encoder, times(2)).matches(eq("secret"), startsWith("$2a$04$"));
+        verify(encoder, times(1)).encode(anyString());
+    }
+
+    @Test
+    void testPasswordOverBcryptLimit() {
+        String tooLong = "\u00e9".repeat(37);
+
+        assertThrows(PasswordTooLongException.class, () -> passwordHasher.hash(tooLong));
+        assertFalse(passwordHasher.matches(tooLong, passwordHasher.hash("secret")));
+        assertFalse(passwordHasher.matches(tooLong, null));
+        assertTrue(passwordHasher.matches("x".repeat(72), passwordHasher.hash("x".repeat(72))));
+    }
+
+    @Test
+    void testHashAllKeepsOrder() {
+        List<String> hashes = passwordHasher.hashAll(List.of("one", "two", "three"));
+
+        assertEquals(3, hashes.size());
+        assertTrue(passwordHasher.matches("two", hashes.get(1)));
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(() -> { });
+
+        try {
+            assertThrows(PasswordHashingUnavailableException.class, () -> passwordHasher.hash("secret"));
+            assertEquals(1, passwordHasher.getRejectedCount());
+        } finally {
+            release.countDown();
+        }
+    }
+}
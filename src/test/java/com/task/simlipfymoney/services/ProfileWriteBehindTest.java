@@ -0,0 +1,143 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ProfileWriteBehindTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    private final ProfileWriteBehind profileWriteBehind = new ProfileWriteBehind();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        profileWriteBehind.close();
+    }
+
+    @Test
+    void testDisabledWritesDirectly() {
+        configure(false, 10, 10, Duration.ofSeconds(10));
+
+        profileWriteBehind.write(user("a"), "REF123");
+
+        verify(userRepository).updateProfiles(List.of(user("a")), Set.of("REF123"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testConcurrentWritesShareOneBulkWrite() throws Exception {
+        // A full batch flushes right away, the long interval keeps the writes from being split
+        configure(true, 10, 4, Duration.ofSeconds(30));
+
+        List<Future<?>> writes = new ArrayList<>();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            writes.add(callers.submit(() -> profileWriteBehind.write(user("a"), "REF123")));
+            writes.add(callers.submit(() -> profileWriteBehind.write(user("b"), "REF123")));
+            writes.add(callers.submit(() -> profileWriteBehind.write(user("c"), "REF456")));
+            writes.add(callers.submit(() -> profileWriteBehind.write(user("d"), null)));
+        }
+        for (Future<?> write : writes) {
+            write.get();
+        }
+
+        ArgumentCaptor<List<User>> users = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Collection<String>> touched = ArgumentCaptor.forClass(Collection.class);
+        verify(userRepository, times(1)).updateProfiles(users.capture(), touched.capture());
+        assertEquals(4, users.getValue().size());
+        assertEquals(Set.of("REF123", "REF456"), Set.copyOf(touched.getValue()));
+    }
+
+    @Test
+    void testFailedFlushFailsEveryCaller() throws Exception {
+        configure(true, 10, 2, Duration.ofSeconds(30));
+        doThrow(new DataAccessResourceFailureException("Mongo is down")).when(userRepository).updateProfiles(anyList(), anyCollection());
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> first = callers.submit(() -> profileWriteBehind.write(user("a"), null));
+            Future<?> second = callers.submit(() -> profileWriteBehind.write(user("b"), null));
+
+            for (Future<?> write : List.of(first, second)) {
+                Exception e = assertThrows(Exception.class, write::get);
+                assertInstanceOf(DataAccessResourceFailureException.class, e.getCause());
+            }
+        }
+        verify(userRepository, times(1)).updateProfiles(anyList(), anyCollection());
+    }
+
+    @Test
+    void testFullQueueWritesOnTheCallersThread() throws Exception {
+        configure(true, 1, 1, Duration.ZERO);
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            // Holds the flusher in its first bulk write, writes done by callers go through
+            if (Thread.currentThread().getName().equals("profile-write-behind")) {
+                flushing.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            }
+            return null;
+        }).when(userRepository).updateProfiles(anyList(), anyCollection());
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> flushed = callers.submit(() -> profileWriteBehind.write(user("a"), null));
+            assertTrue(flushing.await(10, TimeUnit.SECONDS));
+            Future<?> queued = callers.submit(() -> profileWriteBehind.write(user("b"), null));
+            while (!queued.isDone() && queueSize() == 0) {
+                Thread.onSpinWait();
+            }
+
+            profileWriteBehind.write(user("c"), null);
+
+            assertEquals(1, profileWriteBehind.getOverflowedCount());
+            assertFalse(flushed.isDone());
+            release.countDown();
+            flushed.get();
+            queued.get();
+        }
+        verify(userRepository, times(3)).updateProfiles(anyList(), anyCollection());
+    }
+
+    private void configure(boolean enabled, int queueCapacity, int maxBatch, Duration flushInterval) {
+        ReflectionTestUtils.setField(profileWriteBehind, "userRepository", userRepository);
+        ReflectionTestUtils.setField(profileWriteBehind, "enabled", enabled);
+        ReflectionTestUtils.setField(profileWriteBehind, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(profileWriteBehind, "maxBatch", maxBatch);
+        ReflectionTestUtils.setField(profileWriteBehind, "flushInterval", flushInterval);
+        ReflectionTestUtils.setField(profileWriteBehind, "timeout", Duration.ofSeconds(30));
+        profileWriteBehind.init();
+    }
+
+    private int queueSize() {
+        Collection<?> queue = (Collection<?>) ReflectionTestUtils.getField(profileWriteBehind, "queue");
+        return queue.size();
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(id + "@example.com");
+        user.setProfileCompleted(true);
+        return user;
+    }
+}
@@ -0,0 +1,83 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.entities.ReferralEdge;
+import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.repositories.ReactiveReferralEdgeRepository;
+import com.task.simlipfymoney.repositories.ReactiveUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveReportServiceTest {
+
+    @InjectMocks
+    private ReactiveReportService reactiveReportService;
+
+    @Mock
+    private ReactiveUserRepository reactiveUserRepository;
+
+    @Mock
+    private ReactiveReferralEdgeRepository reactiveReferralEdgeRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(reactiveReportService, "batchSize", 2);
+    }
+
+    @Test
+    void testGenerateCsvReportEmitsOneElementPerChunk() {
+        when(reactiveUserRepository.findAllForReport(2))
+                .thenReturn(Flux.just(reportUser("user1@example.com", "AAA111"), reportUser("user2@example.com", "BBB222"), reportUser("user3@example.com", null)));
+        ReferralEdge edge = new ReferralEdge();
+        edge.setReferrerCode("AAA111");
+        edge.setReferredEmail("user2@example.com");
+        when(reactiveReferralEdgeRepository.findByReferrerCodeIn(List.of("AAA111", "BBB222"))).thenReturn(Flux.just(edge));
+
+        StepVerifier.create(reactiveReportService.generateCsvReport())
+                .assertNext(header -> assertTrue(header.startsWith("Name,Email,Referral Code")))
+                .assertNext(chunk -> {
+                    assertTrue(chunk.contains("user1@example.com,AAA111,,false,,,user2@example.com"));
+                    assertTrue(chunk.contains("user2@example.com,BBB222"));
+                })
+                .assertNext(chunk -> assertTrue(chunk.contains("user3@example.com")))
+                .verifyComplete();
+        verify(reactiveReferralEdgeRepository, times(1)).findByReferrerCodeIn(anyCollection());
+    }
+
+    @Test
+    void testGenerateCsvReportPullsUsersOnDemand() {
+        AtomicInteger read = new AtomicInteger();
+        when(reactiveUserRepository.findAllForReport(2)).thenReturn(Flux.range(1, 100)
+                .doOnNext(i -> read.incrementAndGet())
+                .map(i -> reportUser("user" + i + "@example.com", null)));
+
+        // Only the header and the first chunk are requested, most users are never read
+        StepVerifier.create(reactiveReportService.generateCsvReport(), 2)
+                .expectNextCount(2)
+                .thenCancel()
+                .verify();
+        assertTrue(read.get() < 10, "read " + read.get() + " users");
+        verifyNoInteractions(reactiveReferralEdgeRepository);
+    }
+
+    private User reportUser(String email, String referralCode) {
+        User user = new User();
+        user.setName("User");
+        user.setEmail(email);
+        user.setReferralCode(referralCode);
+        return user;
+    }
+}
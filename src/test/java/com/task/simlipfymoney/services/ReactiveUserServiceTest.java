@@ -0,0 +1,235 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.dtos.ProfileCompletionRequest;
+import com.task.simlipfymoney.dtos.SignupRequest;
+import com.task.simlipfymoney.entities.ReferralCounter;
+import com.task.simlipfymoney.entities.ReferralEdge;
+import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.exceptions.DuplicateEmailException;
+import com.task.simlipfymoney.exceptions.InvalidReferralCodeException;
+import com.task.simlipfymoney.exceptions.ReferralCodeAllocationException;
+import com.task.simlipfymoney.exceptions.UserNotFoundException;
+import com.task.simlipfymoney.repositories.ReactiveReferralCounterRepository;
+import com.task.simlipfymoney.repositories.ReactiveReferralEdgeRepository;
+import com.task.simlipfymoney.repositories.ReactiveUserRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveUserServiceTest {
+
+    @InjectMocks
+    private ReactiveUserService reactiveUserService;
+
+    @Mock
+    private ReactiveUserRepository reactiveUserRepository;
+
+    @Mock
+    private ReactiveReferralEdgeRepository reactiveReferralEdgeRepository;
+
+    @Mock
+    private ReactiveReferralCounterRepository reactiveReferralCounterRepository;
+
+    @Mock
+    private ReferralCodeAllocator referralCodeAllocator;
+
+    @Mock
+    private ReferrerCache referrerCache;
+
+    @Mock
+    private ReferralLeaderboard referralLeaderboard;
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    private SignupRequest signupRequest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(reactiveUserService, "defaultPageSize", 100);
+        ReflectionTestUtils.setField(reactiveUserService, "maxPageSize", 500);
+        when(referralCodeAllocator.allocate()).thenReturn("ABC123", "DEF456");
+        when(reactiveUserRepository.insert(any(User.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(reactiveReferralCounterRepository.increment(anyString(), anyLong(), anyLong())).thenReturn(Mono.just(new ReferralCounter()));
+        when(passwordHasher.hashAsync(anyString())).thenReturn(CompletableFuture.completedFuture("$2a$04$hashed"));
+
+        signupRequest = new SignupRequest();
+        signupRequest.setName("User 1");
+        signupRequest.setEmail("user1@example.com");
+        signupRequest.setPassword("password123");
+    }
+
+    @Test
+    void testSignupWithReferrer() {
+        signupRequest.setReferrerCode("REF123");
+        when(reactiveUserRepository.findByReferralCode("REF123")).thenReturn(Mono.just(new User()));
+
+        StepVerifier.create(reactiveUserService.signup(signupRequest))
+                .assertNext(response -> {
+                    assertEquals("ABC123", response.getReferralCode());
+                    assertEquals("REF123", response.getReferrerCode());
+                })
+                .verifyComplete();
+        verify(reactiveUserRepository).insert(argThat((User user) -> "$2a$04$hashed".equals(user.getPassword())));
+        verify(reactiveReferralCounterRepository).increment("REF123", 1, 0);
+    }
+
+    @Test
+    void testSignupInvalidReferralCode() {
+        signupRequest.setReferrerCode("NOPE00");
+        when(reactiveUserRepository.findByReferralCode("NOPE00")).thenReturn(Mono.empty());
+
+        StepVerifier.create(reactiveUserService.signup(signupRequest))
+                .expectError(InvalidReferralCodeException.class)
+                .verify();
+        verify(reactiveUserRepository, never()).insert(any(User.class));
+    }
+
+    @Test
+    void testSignupRetriesReferralCodeCollision() {
+        when(reactiveUserRepository.insert(any(User.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key error collection: TaskDB.users index: referralCode dup key")))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(reactiveUserService.signup(signupRequest))
+                .assertNext(response -> assertEquals("DEF456", response.getReferralCode()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testSignupReferralCodeAllocationException() {
+        when(reactiveUserRepository.insert(any(User.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key error collection: TaskDB.users index: referralCode dup key")));
+
+        StepVerifier.create(reactiveUserService.signup(signupRequest))
+                .expectError(ReferralCodeAllocationException.class)
+                .verify();
+        verify(referralCodeAllocator, times(ReferralCodeAllocator.MAX_ATTEMPTS)).allocate();
+    }
+
+    @Test
+    void testSignupDuplicateEmailException() {
+        when(reactiveUserRepository.insert(any(User.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key error collection: TaskDB.users index: email dup key")));
+
+        StepVerifier.create(reactiveUserService.signup(signupRequest))
+                .expectError(DuplicateEmailException.class)
+                .verify();
+    }
+
+    @Test
+    void testCompleteProfileRecordsReferralEdge() {
+        User user = new User();
+        user.setEmail("user1@example.com");
+        user.setReferralCode("ABC123");
+        user.setReferrerCode("REF123");
+        ProfileCompletionRequest request = new ProfileCompletionRequest();
+        request.setEmail("user1@example.com");
+        request.setPassword("password123");
+        request.setName("User 1");
+        request.setPhoneNumber("1234567890");
+        request.setAddress("Lko");
+        user.setPassword("password123");
+        when(reactiveUserRepository.findByEmail("user1@example.com")).thenReturn(Mono.just(user));
+        when(passwordHasher.matchesAsync("password123", "password123")).thenReturn(CompletableFuture.completedFuture(true));
+        when(passwordHasher.needsUpgrade("password123")).thenReturn(true);
+        when(reactiveUserRepository.updateProfile(user)).thenReturn(Mono.empty());
+        when(reactiveReferralEdgeRepository.insert(any(ReferralEdge.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(reactiveUserRepository.touchByReferralCode("REF123")).thenReturn(Mono.empty());
+
+        StepVerifier.create(reactiveUserService.completeProfile(request))
+                .assertNext(response -> assertTrue(response.isProfileCompleted()))
+                .verifyComplete();
+        assertEquals("$2a$04$hashed", user.getPassword());
+        verify(reactiveReferralCounterRepository).increment("REF123", 0, 1);
+        verify(referralLeaderboard).record(any(ReferralCounter.class));
+        verify(referrerCache).invalidate("ABC123");
+        verify(reactiveUserRepository).updateProfile(user);
+        verify(reactiveUserRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testCompleteProfileWrongPassword() {
+        User user = new User();
+        user.setPassword("$2a$04$stored");
+        ProfileCompletionRequest request = new ProfileCompletionRequest();
+        request.setEmail("user1@example.com");
+        request.setPassword("wrong");
+        when(reactiveUserRepository.findByEmail("user1@example.com")).thenReturn(Mono.just(user));
+        when(passwordHasher.matchesAsync("wrong", "$2a$04$stored")).thenReturn(CompletableFuture.completedFuture(false));
+
+        StepVerifier.create(reactiveUserService.completeProfile(request))
+                .expectError(UserNotFoundException.class)
+                .verify();
+        verify(reactiveUserRepository, never()).updateProfile(any(User.class));
+    }
+
+    @Test
+    void testCompleteProfileUnknownEmailVerifiesDummyHash() {
+        ProfileCompletionRequest request = new ProfileCompletionRequest();
+        request.setEmail("nobody@example.com");
+        request.setPassword("password123");
+        when(reactiveUserRepository.findByEmail("nobody@example.com")).thenReturn(Mono.empty());
+        when(passwordHasher.matchesAsync("password123", null)).thenReturn(CompletableFuture.completedFuture(false));
+
+        StepVerifier.create(reactiveUserService.completeProfile(request))
+                .expectError(UserNotFoundException.class)
+                .verify();
+        verify(passwordHasher).matchesAsync("password123", null);
+    }
+
+    @Test
+    void testGetReferredUsersKeysetPagination() {
+        when(reactiveUserRepository.findByReferralCode("REF123")).thenReturn(Mono.just(new User()));
+        ReferralEdge first = edge("user1@example.com");
+        ReferralEdge second = edge("user2@example.com");
+        when(reactiveReferralEdgeRepository.findByReferrerCodeOrderByIdAsc("REF123", Limit.of(2)))
+                .thenReturn(Flux.just(first, second));
+        User referred = new User();
+        referred.setEmail("user1@example.com");
+        when(reactiveUserRepository.findByEmailInAndProfileCompletedTrue(List.of("user1@example.com")))
+                .thenReturn(Flux.just(referred));
+
+        StepVerifier.create(reactiveUserService.getReferredUsers("REF123", null, 1))
+                .assertNext(page -> {
+                    assertEquals(1, page.getUsers().size());
+                    assertEquals(UserService.encodeCursor(first.getId()), page.getNextCursor());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testGetReferralCountWithoutCounter() {
+        when(reactiveReferralCounterRepository.findById("REF123")).thenReturn(Mono.empty());
+        when(reactiveUserRepository.findByReferralCode("REF123")).thenReturn(Mono.just(new User()));
+
+        StepVerifier.create(reactiveUserService.getReferralCount("REF123"))
+                .assertNext(count -> assertEquals(0, count.getSignedUpReferrals()))
+                .verifyComplete();
+    }
+
+    private ReferralEdge edge(String referredEmail) {
+        ReferralEdge edge = new ReferralEdge();
+        edge.setId(new ObjectId().toHexString());
+        edge.setReferrerCode("REF123");
+        edge.setReferredEmail(referredEmail);
+        return edge;
+    }
+}
@@ -0,0 +1,48 @@
+package com.task.simlipfymoney.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferralCodeAllocatorTest {
+
+    private final ReferralCodeAllocator allocator = new ReferralCodeAllocator();
+
+    @Test
+    void testAllocateReturnsSixAlphanumericCharacters() {
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(allocator.allocate().matches("[A-Z0-9]{6}"));
+        }
+    }
+
+    @Test
+    void testAllocateBatchReturnsDistinctCodes() {
+        Set<String> codes = allocator.allocate(5000);
+
+        assertEquals(5000, codes.size());
+    }
+
+    @Test
+    void testAllocateFromManyThreads() throws Exception {
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    codes.add(allocator.allocate());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // 8000 draws from 36^6 codes, a handful of collisions at most
+        assertTrue(codes.size() > 7990);
+    }
+}
@@ -0,0 +1,143 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.dtos.LeaderboardEntry;
+import com.task.simlipfymoney.entities.ReferralCounter;
+import com.task.simlipfymoney.repositories.ReferralCounterRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ReferralLeaderboardTest {
+
+    @InjectMocks
+    private ReferralLeaderboard leaderboard;
+
+    @Mock
+    private ReferralCounterRepository referralCounterRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(leaderboard, "capacity", 3);
+        ReflectionTestUtils.setField(leaderboard, "seedRetryInterval", Duration.ofHours(1));
+    }
+
+    @Test
+    void testTopSeedsFromCountersOnce() {
+        when(referralCounterRepository.findByCompletedGreaterThanOrderByCompletedDesc(anyLong(), any(Limit.class)))
+                .thenReturn(List.of(counter("AAA111", 5), counter("BBB222", 2)));
+
+        List<LeaderboardEntry> top = leaderboard.top(10);
+        leaderboard.top(10);
+
+        assertEquals(2, top.size());
+        assertEquals("AAA111", top.get(0).getReferralCode());
+        assertEquals(1, top.get(0).getRank());
+        assertEquals(5, top.get(0).getCompletedReferrals());
+        verify(referralCounterRepository, times(1)).findByCompletedGreaterThanOrderByCompletedDesc(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void testRecordReordersAndEvicts() {
+        leaderboard.refresh();
+        leaderboard.record(counter("AAA111", 3));
+        leaderboard.record(counter("BBB222", 2));
+        leaderboard.record(counter("CCC333", 1));
+        leaderboard.record(counter("DDD444", 4));
+        leaderboard.record(counter("CCC333", 5));
+
+        List<String> codes = leaderboard.top(10).stream().map(LeaderboardEntry::getReferralCode).toList();
+
+        assertEquals(List.of("CCC333", "DDD444", "AAA111"), codes);
+    }
+
+    @Test
+    void testRecordIgnoresStaleTotals() {
+        leaderboard.refresh();
+        leaderboard.record(counter("AAA111", 6));
+        leaderboard.record(counter("AAA111", 5));
+
+        assertEquals(6, leaderboard.top(1).get(0).getCompletedReferrals());
+    }
+
+    @Test
+    void testFailedSeedIsNotRetriedOnEveryRead() {
+        when(referralCounterRepository.findByCompletedGreaterThanOrderByCompletedDesc(anyLong(), any(Limit.class)))
+                .thenThrow(new DataAccessResourceFailureException("Mongo is down"));
+
+        assertTrue(leaderboard.top(10).isEmpty());
+        assertTrue(leaderboard.top(10).isEmpty());
+
+        verify(referralCounterRepository, times(1)).findByCompletedGreaterThanOrderByCompletedDesc(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void testRefreshKeepsHigherRecordedTotals() {
+        when(referralCounterRepository.findByCompletedGreaterThanOrderByCompletedDesc(anyLong(), any(Limit.class)))
+                .thenReturn(List.of(counter("AAA111", 2), counter("BBB222", 3)));
+        leaderboard.record(counter("AAA111", 5));
+
+        leaderboard.refresh();
+
+        List<LeaderboardEntry> top = leaderboard.top(10);
+        assertEquals("AAA111", top.get(0).getReferralCode());
+        assertEquals(5, top.get(0).getCompletedReferrals());
+        assertEquals("BBB222", top.get(1).getReferralCode());
+    }
+
+    @Test
+    void testReadersNeverSeeAHalfAppliedUpdate() throws Exception {
+        when(referralCounterRepository.findByCompletedGreaterThanOrderByCompletedDesc(anyLong(), any(Limit.class)))
+                .thenReturn(List.of(counter("AAA111", 1), counter("BBB222", 1), counter("CCC333", 1)));
+        leaderboard.refresh();
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try (ExecutorService threads = Executors.newFixedThreadPool(2)) {
+            Future<?> writer = threads.submit(() -> {
+                for (int completed = 2; completed < 5000; completed++) {
+                    leaderboard.record(counter(completed % 2 == 0 ? "AAA111" : "BBB222", completed));
+                    if (completed % 500 == 0) {
+                        leaderboard.refresh();
+                    }
+                }
+                writing.set(false);
+            });
+            Future<?> reader = threads.submit(() -> {
+                while (writing.get()) {
+                    List<LeaderboardEntry> top = leaderboard.top(10);
+                    assertEquals(3, top.size());
+                    assertTrue(top.get(0).getCompletedReferrals() >= top.get(1).getCompletedReferrals());
+                    assertTrue(top.get(1).getCompletedReferrals() >= top.get(2).getCompletedReferrals());
+                }
+            });
+            writer.get(30, TimeUnit.SECONDS);
+            reader.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private ReferralCounter counter(String referralCode, long completed) {
+        ReferralCounter counter = new ReferralCounter();
+        counter.setReferralCode(referralCode);
+        counter.setSignedUp(completed);
+        counter.setCompleted(completed);
+        return counter;
+    }
+}
@@ -0,0 +1,87 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReferrerCacheTest {
+
+    @InjectMocks
+    private ReferrerCache referrerCache;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(referrerCache, "maxSize", 100L);
+        ReflectionTestUtils.setField(referrerCache, "ttl", Duration.ofMinutes(5));
+        referrerCache.init();
+    }
+
+    @Test
+    void testKnownCodeIsLoadedOnce() {
+        User referrer = new User();
+        referrer.setReferralCode("REF123");
+        when(userRepository.findByReferralCode("REF123")).thenReturn(Optional.of(referrer));
+
+        assertSame(referrer, referrerCache.findByReferralCode("REF123").orElseThrow());
+        assertSame(referrer, referrerCache.findByReferralCode("REF123").orElseThrow());
+
+        verify(userRepository, times(1)).findByReferralCode("REF123");
+    }
+
+    @Test
+    void testUnknownCodeAndFailuresAreNotCached() {
+        when(userRepository.findByReferralCode("NOPE00"))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(Optional.empty());
+
+        assertThrows(DataAccessResourceFailureException.class, () -> referrerCache.findByReferralCode("NOPE00"));
+        assertTrue(referrerCache.findByReferralCode("NOPE00").isEmpty());
+        assertTrue(referrerCache.findByReferralCode("NOPE00").isEmpty());
+
+        verify(userRepository, times(3)).findByReferralCode("NOPE00");
+    }
+
+    // The load runs outside the cache's lock, virtual threads waiting on it unmount instead of pinning their carrier
+    @Test
+    void testConcurrentMissesOnVirtualThreadsShareOneLoad() throws Exception {
+        User referrer = new User();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findByReferralCode("REF123")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(referrer);
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Optional<User>> first = executor.submit(() -> referrerCache.findByReferralCode("REF123"));
+            loading.await();
+            Future<Optional<User>> second = executor.submit(() -> referrerCache.findByReferralCode("REF123"));
+            release.countDown();
+
+            assertSame(referrer, first.get().orElseThrow());
+            assertSame(referrer, second.get().orElseThrow());
+        }
+        verify(userRepository, times(1)).findByReferralCode("REF123");
+    }
+}
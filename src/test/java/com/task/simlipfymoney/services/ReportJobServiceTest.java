@@ -0,0 +1,114 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.dtos.ReportJobResponse;
+import com.task.simlipfymoney.exceptions.ReportJobNotFoundException;
+import com.task.simlipfymoney.exceptions.ReportJobNotReadyException;
+import com.task.simlipfymoney.exceptions.TooManyReportJobsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+class ReportJobServiceTest {
+
+    @InjectMocks
+    private ReportJobService reportJobService;
+
+    @Mock
+    private ReportService reportService;
+
+    @TempDir
+    Path jobsDir;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        executor = Executors.newFixedThreadPool(1);
+        ReflectionTestUtils.setField(reportJobService, "reportJobExecutor", executor);
+        ReflectionTestUtils.setField(reportJobService, "jobsDir", jobsDir);
+        ReflectionTestUtils.setField(reportJobService, "maxConcurrentJobs", 1);
+        ReflectionTestUtils.setField(reportJobService, "ttl", Duration.ofHours(1));
+        reportJobService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testJobCompletesAndFileIsDownloadable() throws Exception {
+        doAnswer(invocation -> {
+            Writer writer = invocation.getArgument(0);
+            AtomicLong progress = invocation.getArgument(2);
+            writer.write("Name,Email\nUser 1,user1@example.com\n");
+            progress.incrementAndGet();
+            return 1L;
+        }).when(reportService).writeReport(any(), any(), any());
+
+        String jobId = reportJobService.startJob().getJobId();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        ReportJobResponse job = reportJobService.getJob(jobId);
+        assertEquals(ReportJobResponse.Status.COMPLETED, job.getStatus());
+        assertEquals(1, job.getRowsWritten());
+        assertEquals("/api/report/jobs/" + jobId + "/download", job.getDownloadUrl());
+        assertTrue(Files.readString(reportJobService.getReportFile(jobId)).contains("user1@example.com"));
+    }
+
+    @Test
+    void testConcurrentJobLimitAndNotReady() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 0L;
+        }).when(reportService).writeReport(any(), any(), any());
+
+        String jobId = reportJobService.startJob().getJobId();
+        try {
+            assertThrows(TooManyReportJobsException.class, () -> reportJobService.startJob());
+            assertThrows(ReportJobNotReadyException.class, () -> reportJobService.getReportFile(jobId));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testFailedJobAndExpiry() throws Exception {
+        doAnswer(invocation -> {
+            throw new IllegalStateException("cursor died");
+        }).when(reportService).writeReport(any(), any(), any());
+
+        String jobId = reportJobService.startJob().getJobId();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(ReportJobResponse.Status.FAILED, reportJobService.getJob(jobId).getStatus());
+        assertFalse(Files.exists(jobsDir.resolve(jobId + ".csv.part")));
+
+        ReflectionTestUtils.setField(reportJobService, "ttl", Duration.ZERO);
+        reportJobService.purgeExpiredJobs();
+        assertThrows(ReportJobNotFoundException.class, () -> reportJobService.getJob(jobId));
+    }
+}
@@ -1,17 +1,32 @@
 package com.task.simlipfymoney.services;
 
+import com.task.simlipfymoney.entities.ReferralEdge;
 import com.task.simlipfymoney.entities.User;
 import com.task.simlipfymoney.exceptions.CsvGenerationException;
+import com.task.simlipfymoney.repositories.ReferralEdgeRepository;
 import com.task.simlipfymoney.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,14 +39,21 @@ class ReportServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ReferralEdgeRepository referralEdgeRepository;
+
     @Mock
     private HttpServletResponse response;
 
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private StringWriter stringWriter;
 
     @BeforeEach
     void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(reportService, "watermarkMargin", Duration.ofSeconds(5));
         stringWriter = new StringWriter();
         PrintWriter printWriter = new PrintWriter(stringWriter);
         when(response.getWriter()).thenReturn(printWriter);
@@ -47,9 +69,10 @@ class ReportServiceTest {
         user.setProfileCompleted(true);
         user.setPhoneNumber("1234567890");
         user.setAddress("Lko");
-        user.setReferredUsers(List.of("user3", "user4"));
 
-        when(userRepository.findAll()).thenReturn(Collections.singletonList(user));
+        when(userRepository.streamForReport(anyInt())).thenReturn(Stream.of(user));
+        when(referralEdgeRepository.findByReferrerCodeIn(List.of("REF123")))
+                .thenReturn(List.of(edge("REF123", "user3"), edge("REF123", "user4")));
 
         assertDoesNotThrow(() -> reportService.generateCsvReport(response));
 
@@ -61,7 +84,7 @@ class ReportServiceTest {
 
     @Test
     void testGenerateCsvReportCsvGenerationException() {
-        when(userRepository.findAll()).thenThrow(new CsvGenerationException("Failed to generate CSV report"));
+        when(userRepository.streamForReport(anyInt())).thenThrow(new CsvGenerationException("Failed to generate CSV report"));
 
         CsvGenerationException exception = assertThrows(
                 CsvGenerationException.class,
@@ -70,4 +93,169 @@ class ReportServiceTest {
 
         assertEquals("Failed to generate CSV report", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGenerateCsvReportSinceWatermarkUsesDeltaQuery() {
+        Instant since = Instant.parse("2026-01-01T00:00:00Z");
+        when(userRepository.streamForReportModifiedSince(eq(since), anyInt())).thenReturn(Stream.of(reportUser("User A")));
+
+        reportService.generateCsvReport(response, since);
+
+        assertTrue(stringWriter.toString().contains("User A,usera@example.com"));
+        verify(response).setHeader(eq(ReportService.WATERMARK_HEADER), anyString());
+        verify(userRepository, never()).streamForReport(anyInt());
+    }
+
+    @Test
+    void testGenerateCsvReportWatermarkLeavesSafetyMargin() {
+        when(userRepository.streamForReport(anyInt())).thenReturn(Stream.of(reportUser("User A")));
+
+        Instant before = Instant.now();
+        reportService.generateCsvReport(response);
+        Instant after = Instant.now();
+
+        ArgumentCaptor<String> watermark = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq(ReportService.WATERMARK_HEADER), watermark.capture());
+        Instant value = Instant.parse(watermark.getValue());
+        assertFalse(value.isBefore(before.minusSeconds(5)));
+        assertFalse(value.isAfter(after.minusSeconds(5)));
+    }
+
+    @Test
+    void testGenerateCsvReportParallelKeepsIdOrder() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ReflectionTestUtils.setField(reportService, "reportExecutor", executor);
+        ReflectionTestUtils.setField(reportService, "partitions", 3);
+        ReflectionTestUtils.setField(reportService, "workers", 2);
+
+        when(userRepository.findIdBoundaries(3)).thenReturn(List.of("b", "c"));
+        when(userRepository.findForReport(isNull(), isNull(), eq("b"), anyInt())).thenReturn(List.of(reportUser("User A")));
+        when(userRepository.findForReport(eq("b"), isNull(), eq("c"), anyInt())).thenReturn(List.of(reportUser("User B")));
+        when(userRepository.findForReport(eq("c"), isNull(), isNull(), anyInt())).thenReturn(List.of(reportUser("User C")));
+
+        try {
+            reportService.generateCsvReport(response);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        String output = stringWriter.toString();
+        assertTrue(output.indexOf("User A") < output.indexOf("User B"));
+        assertTrue(output.indexOf("User B") < output.indexOf("User C"));
+        verify(userRepository, never()).streamForReport(anyInt());
+    }
+
+    @Test
+    void testGenerateCsvReportParallelWaitingRangeHoldsNoCursor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ReflectionTestUtils.setField(reportService, "reportExecutor", executor);
+        ReflectionTestUtils.setField(reportService, "partitions", 2);
+        ReflectionTestUtils.setField(reportService, "workers", 2);
+        ReflectionTestUtils.setField(reportService, "batchSize", 1);
+
+        // The first range waits, the second fills its queue and then has to wait for the writer
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findIdBoundaries(2)).thenReturn(List.of("b"));
+        when(userRepository.findForReport(isNull(), isNull(), eq("b"), eq(1))).thenAnswer(invocation -> {
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return List.of(reportUser("a0", "User A"));
+        });
+        List<Object> resumedAfter = new CopyOnWriteArrayList<>();
+        when(userRepository.findForReport(eq("b"), any(), isNull(), eq(1))).thenAnswer(invocation -> {
+            Object afterId = invocation.getArgument(1);
+            resumedAfter.add(afterId == null ? "start" : afterId);
+            int next = afterId == null ? 0 : Integer.parseInt(afterId.toString().substring(1)) + 1;
+            return next < 100 ? List.of(reportUser("b" + next, "User B" + next)) : List.of();
+        });
+
+        try (ExecutorService download = Executors.newSingleThreadExecutor()) {
+            Future<?> report = download.submit(() -> reportService.generateCsvReport(response));
+            while (resumedAfter.size() < ReportService.CHUNKS_AHEAD + 1) {
+                Thread.onSpinWait();
+            }
+            Thread.sleep(200);
+            // Each query returned its whole page, the range waits with nothing open on the server
+            assertEquals(ReportService.CHUNKS_AHEAD + 1, resumedAfter.size());
+
+            release.countDown();
+            report.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // After waiting the range resumes from the last id it read, one query per chunk
+        assertEquals(101, resumedAfter.size());
+        assertEquals(List.of("start", "b0", "b1"), resumedAfter.subList(0, 3));
+        verify(userRepository, never()).streamForReport(anyInt());
+
+        String output = stringWriter.toString();
+        assertEquals(101, output.lines().count() - 1);
+        assertTrue(output.indexOf("User A") < output.indexOf("User B0"));
+        assertTrue(output.indexOf("User B98") < output.indexOf("User B99"));
+    }
+
+    @Test
+    void testGenerateCsvReportParallelFailedRange() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ReflectionTestUtils.setField(reportService, "reportExecutor", executor);
+        ReflectionTestUtils.setField(reportService, "partitions", 2);
+        ReflectionTestUtils.setField(reportService, "workers", 2);
+
+        when(userRepository.findIdBoundaries(2)).thenReturn(List.of("b"));
+        when(userRepository.findForReport(isNull(), isNull(), eq("b"), anyInt())).thenReturn(List.of(reportUser("User A")));
+        when(userRepository.findForReport(eq("b"), isNull(), isNull(), anyInt())).thenThrow(new DataAccessResourceFailureException("Mongo is down"));
+
+        try {
+            assertThrows(CsvGenerationException.class, () -> reportService.generateCsvReport(response));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGenerateCsvReportClosesCursor() {
+        User user = new User();
+        user.setName("User 1");
+        user.setEmail("user1@example.com");
+
+        boolean[] closed = {false};
+        when(userRepository.streamForReport(anyInt())).thenReturn(Stream.of(user).onClose(() -> closed[0] = true));
+
+        reportService.generateCsvReport(response);
+
+        assertTrue(closed[0], "Cursor stream should be closed after export");
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void testGenerateCsvReportCountsRowsAndBytes() {
+        User user = reportUser("User \u00e9");
+        when(userRepository.streamForReport(anyInt())).thenReturn(Stream.of(user, reportUser("User B")));
+
+        reportService.generateCsvReport(response);
+
+        assertEquals(2, meterRegistry.get("report.export.rows").counter().count());
+        int expectedBytes = stringWriter.toString().getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(expectedBytes, meterRegistry.get("report.export.bytes").counter().count());
+    }
+
+    private ReferralEdge edge(String referrerCode, String referredEmail) {
+        ReferralEdge edge = new ReferralEdge();
+        edge.setReferrerCode(referrerCode);
+        edge.setReferredEmail(referredEmail);
+        return edge;
+    }
+
+    private User reportUser(String id, String name) {
+        User user = reportUser(name);
+        user.setId(id);
+        return user;
+    }
+
+    private User reportUser(String name) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(name.replace(" ", "").toLowerCase() + "@example.com");
+        return user;
+    }
+}
@@ -0,0 +1,106 @@
+package com.task.simlipfymoney.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test");
+
+    @Test
+    void testOverlappingCallsShareOneExecution() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> singleFlight.execute("REF123", () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return "page";
+                })));
+            }
+            // Every other caller is waiting on the first one before it is let go
+            while (singleFlight.getSharedCount() < 7) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("page", result.get());
+            }
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getExecutedCount());
+        assertEquals(7, singleFlight.getSharedCount());
+    }
+
+    @Test
+    void testDifferentKeysAndLaterCallsRunThemselves() {
+        assertEquals("a", singleFlight.execute("A", () -> "a"));
+        assertEquals("b", singleFlight.execute("B", () -> "b"));
+        assertEquals("a2", singleFlight.execute("A", () -> "a2"));
+
+        assertEquals(3, singleFlight.getExecutedCount());
+        assertEquals(0, singleFlight.getSharedCount());
+    }
+
+    @Test
+    void testFailureIsSharedAndNotKept() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = callers.submit(() -> singleFlight.execute("REF123", () -> {
+                await(release);
+                throw new IllegalStateException("Mongo is down");
+            }));
+            while (singleFlight.getExecutedCount() < 1) {
+                Thread.onSpinWait();
+            }
+            Future<String> follower = callers.submit(() -> singleFlight.execute("REF123", () -> "unused"));
+            while (singleFlight.getSharedCount() < 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            for (Future<String> result : List.of(leader, follower)) {
+                ExecutionException e = assertThrows(ExecutionException.class, result::get);
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        }
+
+        assertEquals("recovered", singleFlight.execute("REF123", () -> "recovered"));
+    }
+
+    @Test
+    void testMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        singleFlight.bindTo(registry);
+
+        singleFlight.execute("A", () -> "a");
+
+        assertEquals(1, registry.get("single.flight.calls").tags("name", "test", "outcome", "executed").functionCounter().count());
+        assertEquals(0, registry.get("single.flight.calls").tags("name", "test", "outcome", "shared").functionCounter().count());
+        assertEquals(0, registry.get("single.flight.in.flight").tag("name", "test").gauge().value());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.task.simlipfymoney.services;
+
+import com.task.simlipfymoney.dtos.BatchSignupResult;
+import com.task.simlipfymoney.dtos.ImportSummary;
+import com.task.simlipfymoney.dtos.SignupRequest;
+import com.task.simlipfymoney.exceptions.InvalidImportFileException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class UserImportServiceTest {
+
+    @InjectMocks
+    private UserImportService userImportService;
+
+    @Mock
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(userImportService, "batchSize", 2);
+        ReflectionTestUtils.setField(userImportService, "maxErrors", 100);
+        // Every row is created except those without a password
+        when(userService.signupAll(anyList(), anyList())).thenAnswer(invocation -> {
+            List<SignupRequest> requests = invocation.getArgument(0);
+            List<BatchSignupResult> results = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                boolean valid = requests.get(i).getPassword() != null;
+                results.add(BatchSignupResult.builder()
+                        .index(i)
+                        .email(requests.get(i).getEmail())
+                        .status(valid ? BatchSignupResult.Status.CREATED : BatchSignupResult.Status.FAILED)
+                        .error(valid ? null : "Invalid password: must not be null")
+                        .build());
+            }
+            return results;
+        });
+    }
+
+    @Test
+    void testImportCsvWritesInBatches() {
+        String csv = """
+                name,email,password,referrerCode,referralCode
+                User 1,user1@example.com,secret,,OLD001
+                User 2,user2@example.com,,OLD001,
+                User 3,user3@example.com,secret,OLD001,
+                """;
+
+        ImportSummary summary = userImportService.importCsv(new StringReader(csv));
+
+        assertTrue(summary.isCompleted());
+        assertEquals(3, summary.getRowsRead());
+        assertEquals(2, summary.getCreated());
+        assertEquals(1, summary.getFailed());
+        assertEquals(3, summary.getErrors().get(0).getLine());
+        assertEquals("user2@example.com", summary.getErrors().get(0).getEmail());
+
+        ArgumentCaptor<List<String>> codes = ArgumentCaptor.forClass(List.class);
+        verify(userService, times(2)).signupAll(anyList(), codes.capture());
+        assertEquals("OLD001", codes.getAllValues().get(0).get(0));
+        assertNull(codes.getAllValues().get(0).get(1));
+    }
+
+    @Test
+    void testImportCsvCapsErrors() {
+        ReflectionTestUtils.setField(userImportService, "maxErrors", 1);
+        String csv = """
+                Name,Email,Password
+                User 1,user1@example.com,
+                User 2,user2@example.com,
+                """;
+
+        ImportSummary summary = userImportService.importCsv(new StringReader(csv));
+
+        assertEquals(2, summary.getFailed());
+        assertEquals(1, summary.getErrors().size());
+        assertTrue(summary.isErrorsTruncated());
+    }
+
+    @Test
+    void testImportCsvStopsAtMalformedRow() {
+        String csv = "name,email,password\nUser 1,user1@example.com,secret\n\"User 2,user2@example.com,secret\n";
+
+        ImportSummary summary = userImportService.importCsv(new StringReader(csv));
+
+        assertFalse(summary.isCompleted());
+        assertEquals(1, summary.getCreated());
+        assertTrue(summary.getErrors().get(0).getError().startsWith("Malformed CSV"));
+    }
+
+    @Test
+    void testImportCsvMissingColumns() {
+        assertThrows(InvalidImportFileException.class,
+                () -> userImportService.importCsv(new StringReader("name,email\nUser 1,user1@example.com\n")));
+        verify(userService, never()).signupAll(anyList(), anyList());
+    }
+}
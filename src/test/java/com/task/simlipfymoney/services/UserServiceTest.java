@@ -3,38 +3,96 @@ package com.task.simlipfymoney.services;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.task.simlipfymoney.dtos.BatchSignupResponse;
+import com.task.simlipfymoney.dtos.BatchSignupResult;
+import com.task.simlipfymoney.dtos.DownlineResponse;
+import com.task.simlipfymoney.dtos.ImportSummary;
 import com.task.simlipfymoney.dtos.ProfileCompletionRequest;
+import com.task.simlipfymoney.dtos.ReferralCountResponse;
+import com.task.simlipfymoney.dtos.ReferredUsersPage;
 import com.task.simlipfymoney.dtos.SignupRequest;
 import com.task.simlipfymoney.dtos.UserResponse;
+import com.task.simlipfymoney.entities.ReferralCounter;
+import com.task.simlipfymoney.entities.ReferralEdge;
 import com.task.simlipfymoney.entities.User;
+import com.task.simlipfymoney.exceptions.BatchTooLargeException;
 import com.task.simlipfymoney.exceptions.DuplicateEmailException;
+import com.task.simlipfymoney.exceptions.InvalidPageCursorException;
 import com.task.simlipfymoney.exceptions.InvalidReferralCodeException;
+import com.task.simlipfymoney.exceptions.ReferralCodeAllocationException;
 import com.task.simlipfymoney.exceptions.UserNotFoundException;
+import com.task.simlipfymoney.repositories.ReferralCounterRepository;
+import com.task.simlipfymoney.repositories.ReferralEdgeRepository;
 import com.task.simlipfymoney.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.StringReader;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-@SpringBootTest
+@SpringBootTest(properties = {
+        "spring.data.mongodb.auto-index-creation=false",
+        "password.bcrypt.strength=4"
+})
 public class UserServiceTest {
 
+    // 37 chars but 74 bytes in UTF-8, over the 72 bytes BCrypt accepts
+    private static final String LONG_PASSWORD = "\u00e9".repeat(37);
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ReferrerCache referrerCache;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("passwordHashExecutor")
+    private ThreadPoolExecutor passwordHashExecutor;
+
     @MockBean
     private UserRepository userRepository;
 
+    @MockBean
+    private ReferralEdgeRepository referralEdgeRepository;
+
+    @MockBean
+    private ReferralCounterRepository referralCounterRepository;
+
     private SignupRequest signupRequest;
     private ProfileCompletionRequest profileCompletionRequest;
     private User user;
 
     @BeforeEach
     public void setUp() {
+        referrerCache.invalidateAll();
+
         signupRequest = new SignupRequest();
         signupRequest.setEmail("user1@example.com");
         signupRequest.setPassword("password123");
@@ -53,59 +111,364 @@ public class UserServiceTest {
         user.setProfileCompleted(false);
     }
 
+    //Test for batch signup with one referrer query and one bulk insert
+    @Test
+    public void testSignupBatchSuccess() {
+        SignupRequest referred = batchRequest("user2@example.com", "REF123");
+        when(userRepository.findExistingReferralCodes(Set.of("REF123"))).thenReturn(Set.of("REF123"));
+        when(userRepository.insertUnordered(anyList())).thenReturn(Map.of());
+
+        BatchSignupResponse response = userService.signupBatch(List.of(signupRequestWithName(), referred));
+
+        assertEquals(2, response.getCreated());
+        assertEquals(0, response.getFailed());
+        assertEquals("REF123", response.getResults().get(1).getUser().getReferrerCode());
+        assertNotNull(response.getResults().get(0).getUser().getReferralCode());
+        verify(userRepository, times(1)).insertUnordered(anyList());
+        verify(referralCounterRepository).incrementSignedUp(Map.of("REF123", 1L));
+    }
+
+    //Test for per item failures in a batch signup
+    @Test
+    public void testSignupBatchReportsFailedItems() {
+        SignupRequest invalid = batchRequest("not-an-email", null);
+        SignupRequest duplicateInBatch = batchRequest("user1@example.com", null);
+        SignupRequest unknownReferrer = batchRequest("user3@example.com", "NOPE00");
+        SignupRequest existing = batchRequest("user4@example.com", null);
+        when(userRepository.findExistingReferralCodes(anyCollection())).thenReturn(Set.of());
+        when(userRepository.insertUnordered(anyList()))
+                .thenReturn(Map.of(1, "E11000 duplicate key error collection: referral.users index: email dup key: { email: \"user4@example.com\" }"));
+
+        BatchSignupResponse response = userService.signupBatch(
+                List.of(signupRequestWithName(), invalid, duplicateInBatch, unknownReferrer, existing));
+
+        assertEquals(1, response.getCreated());
+        assertEquals(4, response.getFailed());
+        assertEquals(BatchSignupResult.Status.CREATED, response.getResults().get(0).getStatus());
+        assertTrue(response.getResults().get(1).getError().startsWith("Invalid email"));
+        assertEquals("Email appears more than once in the batch.", response.getResults().get(2).getError());
+        assertEquals("Invalid referral code provided.", response.getResults().get(3).getError());
+        assertEquals("Email is already in use.", response.getResults().get(4).getError());
+        verify(referralCounterRepository, never()).incrementSignedUp(anyMap());
+    }
+
+    //Test for failing only the batch item whose password is too long for BCrypt
+    @Test
+    public void testSignupBatchReportsPasswordOverBcryptLimit() {
+        SignupRequest tooLong = batchRequest("user2@example.com", null);
+        tooLong.setPassword(LONG_PASSWORD);
+        when(userRepository.insertUnordered(anyList())).thenReturn(Map.of());
+
+        BatchSignupResponse response = userService.signupBatch(List.of(signupRequestWithName(), tooLong));
+
+        assertEquals(1, response.getCreated());
+        assertEquals(BatchSignupResult.Status.FAILED, response.getResults().get(1).getStatus());
+        assertEquals("Invalid password: must be at most 72 bytes in UTF-8", response.getResults().get(1).getError());
+    }
+
+    //Test for importing the other rows of a batch holding a password too long for BCrypt
+    @Test
+    public void testImportCsvReportsPasswordOverBcryptLimit() {
+        when(userRepository.insertUnordered(anyList())).thenReturn(Map.of());
+        String csv = "name,email,password,referrerCode,referralCode\n"
+                + "User 1,user1@example.com,secret,,\n"
+                + "User 2,user2@example.com," + LONG_PASSWORD + ",,\n";
+
+        ImportSummary summary = userImportService.importCsv(new StringReader(csv));
+
+        assertEquals(1, summary.getCreated());
+        assertEquals(1, summary.getFailed());
+        assertEquals("user2@example.com", summary.getErrors().get(0).getEmail());
+        assertEquals("Invalid password: must be at most 72 bytes in UTF-8", summary.getErrors().get(0).getError());
+    }
+
+    //Test for reporting a null batch element as a failed item instead of failing the batch
+    @Test
+    public void testSignupBatchReportsNullItem() {
+        when(userRepository.insertUnordered(anyList())).thenReturn(Map.of());
+
+        BatchSignupResponse response = userService.signupBatch(Arrays.asList(signupRequestWithName(), null));
+
+        assertEquals(1, response.getCreated());
+        assertEquals(1, response.getFailed());
+        BatchSignupResult missing = response.getResults().get(1);
+        assertEquals(1, missing.getIndex());
+        assertEquals(BatchSignupResult.Status.FAILED, missing.getStatus());
+        assertEquals("Missing user.", missing.getError());
+        assertNull(missing.getEmail());
+    }
+
+    //Test for retrying only the users whose referral code collided
+    @Test
+    public void testSignupBatchRetriesReferralCodeCollision() {
+        when(userRepository.insertUnordered(anyList()))
+                .thenReturn(Map.of(1, "E11000 duplicate key error collection: referral.users index: referralCode dup key: { referralCode: \"ABC123\" }"))
+                .thenReturn(Map.of());
+
+        BatchSignupResponse response = userService.signupBatch(
+                List.of(signupRequestWithName(), batchRequest("user2@example.com", null)));
+
+        assertEquals(2, response.getCreated());
+        ArgumentCaptor<List<User>> captor = ArgumentCaptor.forClass(List.class);
+        verify(userRepository, times(2)).insertUnordered(captor.capture());
+        assertEquals(1, captor.getAllValues().get(1).size());
+        assertEquals("user2@example.com", captor.getAllValues().get(1).get(0).getEmail());
+    }
+
+    //Test for keeping imported referral codes and linking referrers within the same call
+    @Test
+    public void testSignupAllKeepsReferralCodes() {
+        when(userRepository.insertUnordered(anyList())).thenReturn(Map.of());
+
+        List<BatchSignupResult> results = userService.signupAll(
+                List.of(signupRequestWithName(), batchRequest("user2@example.com", "OLD001")),
+                Arrays.asList("OLD001", null));
+
+        assertEquals(BatchSignupResult.Status.CREATED, results.get(1).getStatus());
+        assertEquals("OLD001", results.get(0).getUser().getReferralCode());
+        assertEquals("OLD001", results.get(1).getUser().getReferrerCode());
+        verify(userRepository, never()).findExistingReferralCodes(anyCollection());
+        // The referrer is inserted before the user it referred
+        ArgumentCaptor<List<User>> captor = ArgumentCaptor.forClass(List.class);
+        verify(userRepository, times(2)).insertUnordered(captor.capture());
+        assertEquals("user1@example.com", captor.getAllValues().get(0).get(0).getEmail());
+        assertEquals("user2@example.com", captor.getAllValues().get(1).get(0).getEmail());
+    }
+
+    //Test for failing users referred within the same call when their referrer is a duplicate email
+    @Test
+    public void testSignupAllFailsUsersOfDuplicateReferrer() {
+        when(userRepository.insertUnordered(anyList()))
+                .thenReturn(Map.of(0, "E11000 duplicate key error collection: referral.users index: email dup key: { email: \"user1@example.com\" }"));
+
+        List<BatchSignupResult> results = userService.signupAll(
+                List.of(signupRequestWithName(), batchRequest("user2@example.com", "OLD001"), batchRequest("user3@example.com", null)),
+                Arrays.asList("OLD001", null, null));
+
+        assertEquals("Email is already in use.", results.get(0).getError());
+        assertEquals(BatchSignupResult.Status.FAILED, results.get(1).getStatus());
+        assertEquals("Invalid referral code provided.", results.get(1).getError());
+        assertEquals(BatchSignupResult.Status.CREATED, results.get(2).getStatus());
+        // Only the first round ran, nothing referred by OLD001 was written or counted
+        verify(userRepository, times(1)).insertUnordered(anyList());
+        verify(referralCounterRepository, never()).incrementSignedUp(anyMap());
+    }
+
+    //Test for rejecting batches above the configured size
+    @Test
+    public void testSignupBatchTooLargeException() {
+        List<SignupRequest> requests = Collections.nCopies(1001, signupRequestWithName());
+
+        assertThrows(BatchTooLargeException.class, () -> userService.signupBatch(requests));
+        verify(userRepository, never()).insertUnordered(anyList());
+    }
+
     //Test for sign up successful
     @Test
     public void testSignupSuccess() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
-        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(userRepository.insert(any(User.class))).thenReturn(user);
 
         UserResponse response = userService.signup(signupRequest);
 
         assertNotNull(response);
         assertEquals("user1@example.com", response.getEmail());
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).insert(any(User.class));
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    //Test for rejecting an invalid referral code before the password is hashed
+    @Test
+    public void testSignupInvalidReferralCodeSkipsHashing() {
+        signupRequest.setReferrerCode("INVALID");
+        when(userRepository.findByReferralCode("INVALID")).thenReturn(Optional.empty());
+        long hashTasks = passwordHashExecutor.getTaskCount();
+
+        assertThrows(InvalidReferralCodeException.class, () -> userService.signup(signupRequest));
+
+        assertEquals(hashTasks, passwordHashExecutor.getTaskCount());
+        verify(userRepository, never()).insert(any(User.class));
+    }
+
+    //Test for counting the signup against the referrer
+    @Test
+    public void testSignupWithReferrerIncrementsCounter() {
+        signupRequest.setReferrerCode("REF456");
+        User referrer = new User();
+        referrer.setReferralCode("REF456");
+        user.setReferrerCode("REF456");
+        when(userRepository.findByReferralCode("REF456")).thenReturn(Optional.of(referrer));
+        when(userRepository.insert(any(User.class))).thenReturn(user);
+
+        userService.signup(signupRequest);
+
+        verify(referralCounterRepository).increment("REF456", 1, 0);
     }
 
     //Test for DuplicateEmailException during sign up
     @Test
     public void testSignupDuplicateEmailException() {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+        when(userRepository.insert(any(User.class))).thenThrow(new DuplicateKeyException(
+                "E11000 duplicate key error collection: TaskDB.users index: email dup key: { email: \"user1@example.com\" }"));
+
+        double before = duplicateEmailSignups();
 
         assertThrows(DuplicateEmailException.class, () -> userService.signup(signupRequest));
 
-        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository, never()).findByEmail(anyString());
+        assertEquals(before + 1, duplicateEmailSignups());
+    }
+
+    private double duplicateEmailSignups() {
+        Timer timer = meterRegistry.find("user.service")
+                .tags("method", "signup", "exception", "DuplicateEmailException")
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    //Test for retrying the insert when the referral code is already taken
+    @Test
+    public void testSignupRetriesReferralCodeCollision() {
+        when(userRepository.insert(any(User.class)))
+                .thenThrow(new DuplicateKeyException(
+                        "E11000 duplicate key error collection: TaskDB.users index: referralCode dup key: { referralCode: \"ABC123\" }"))
+                .thenReturn(user);
+
+        UserResponse response = userService.signup(signupRequest);
+
+        assertEquals("user1@example.com", response.getEmail());
+        verify(userRepository, times(2)).insert(any(User.class));
+    }
+
+    //Test for giving up after repeated referral code collisions
+    @Test
+    public void testSignupReferralCodeAllocationException() {
+        when(userRepository.insert(any(User.class))).thenThrow(new DuplicateKeyException(
+                "E11000 duplicate key error collection: TaskDB.users index: referralCode dup key: { referralCode: \"ABC123\" }"));
+
+        assertThrows(ReferralCodeAllocationException.class, () -> userService.signup(signupRequest));
+        verify(userRepository, times(ReferralCodeAllocator.MAX_ATTEMPTS)).insert(any(User.class));
     }
 
     //Test for complete profile successful
     @Test
     public void testCompleteProfileSuccess() {
-        when(userRepository.findByEmailAndPassword(anyString(), anyString()))
+        profileCompletionRequest.setAddress("Lko");
+        when(userRepository.findByEmail(anyString()))
                 .thenReturn(Optional.of(user));
 
-        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
-            User savedUser = invocation.getArgument(0);
-            savedUser.setProfileCompleted(true);
-            return savedUser;
-        });
-
         UserResponse response = userService.completeProfile(profileCompletionRequest);
 
-        ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
-        verify(userRepository).save(captor.capture());
-        User savedUser = captor.getValue();
+        User savedUser = updatedProfile(Set.of());
+        verify(userRepository, never()).save(any(User.class));
 
         assertTrue(savedUser.isProfileCompleted(), "User profile should be marked as completed");
         assertEquals("User 1", response.getName());
         assertEquals("1234567890", response.getPhoneNumber());
     }
 
+    //Test for recording the referral as an edge instead of rewriting the referrer
+    @Test
+    public void testCompleteProfileRecordsReferralEdge() {
+        user.setReferrerCode("REF456");
+        profileCompletionRequest.setAddress("Lko");
+        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+
+        UserResponse response = userService.completeProfile(profileCompletionRequest);
+
+        ArgumentCaptor<ReferralEdge> captor = ArgumentCaptor.forClass(ReferralEdge.class);
+        verify(referralEdgeRepository).insert(captor.capture());
+        assertEquals("REF456", captor.getValue().getReferrerCode());
+        assertEquals("user1@example.com", captor.getValue().getReferredEmail());
+        assertTrue(response.isProfileCompleted());
+        assertTrue(updatedProfile(Set.of("REF456")).isProfileCompleted());
+        verify(referralCounterRepository).increment("REF456", 0, 1);
+        verify(userRepository, never()).findByReferralCode("REF456");
+        verify(userRepository, never()).touchByReferralCode(anyString());
+    }
+
+    //Test for ignoring a referral that was already recorded
+    @Test
+    public void testCompleteProfileDuplicateReferralEdge() {
+        user.setReferrerCode("REF456");
+        profileCompletionRequest.setAddress("Lko");
+        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+        when(referralEdgeRepository.insert(any(ReferralEdge.class))).thenThrow(new DuplicateKeyException("E11000"));
+
+        assertDoesNotThrow(() -> userService.completeProfile(profileCompletionRequest));
+        updatedProfile(Set.of());
+        verify(referralCounterRepository, never()).increment(anyString(), anyLong(), anyLong());
+    }
+
+    //Test for storing only a hash of the password on signup
+    @Test
+    public void testSignupStoresHashedPassword() {
+        when(userRepository.insert(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        userService.signup(signupRequest);
+
+        ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
+        verify(userRepository).insert(captor.capture());
+        assertNotEquals("password123", captor.getValue().getPassword());
+        assertTrue(passwordEncoder.matches("password123", captor.getValue().getPassword()));
+    }
+
+    //Test for verifying a hashed password in the application
+    @Test
+    public void testCompleteProfileWithHashedPassword() {
+        String hash = passwordEncoder.encode("password123");
+        user.setPassword(hash);
+        when(userRepository.findByEmail("user1@example.com")).thenReturn(Optional.of(user));
+
+        userService.completeProfile(profileCompletionRequest);
+
+        assertEquals(hash, updatedProfile(Set.of()).getPassword());
+    }
+
+    //Test for rejecting a password too long for BCrypt as a wrong password, for known and unknown emails
+    @Test
+    public void testCompleteProfilePasswordOverBcryptLimit() {
+        user.setPassword(passwordEncoder.encode("password123"));
+        when(userRepository.findByEmail("user1@example.com")).thenReturn(Optional.of(user));
+        profileCompletionRequest.setPassword(LONG_PASSWORD);
+
+        assertThrows(UserNotFoundException.class, () -> userService.completeProfile(profileCompletionRequest));
+
+        profileCompletionRequest.setEmail("unknown@example.com");
+        assertThrows(UserNotFoundException.class, () -> userService.completeProfile(profileCompletionRequest));
+        verify(userRepository, never()).updateProfiles(anyList(), anyCollection());
+    }
+
+    //Test for replacing a plain text password with a hash on login
+    @Test
+    public void testCompleteProfileUpgradesPlainTextPassword() {
+        when(userRepository.findByEmail("user1@example.com")).thenReturn(Optional.of(user));
+
+        userService.completeProfile(profileCompletionRequest);
+
+        assertTrue(passwordEncoder.matches("password123", updatedProfile(Set.of()).getPassword()));
+    }
+
+    //Test for rejecting a wrong password
+    @Test
+    public void testCompleteProfileWrongPassword() {
+        user.setPassword(passwordEncoder.encode("another-password"));
+        when(userRepository.findByEmail("user1@example.com")).thenReturn(Optional.of(user));
+
+        assertThrows(UserNotFoundException.class, () -> userService.completeProfile(profileCompletionRequest));
+        verify(userRepository, never()).updateProfiles(anyList(), anyCollection());
+    }
+
     //Test for UserNotFoundException during complete profile
     @Test
     public void testCompleteProfileUserNotFoundException() {
-        when(userRepository.findByEmailAndPassword(anyString(), anyString()))
+        when(userRepository.findByEmail(anyString()))
                 .thenReturn(Optional.empty());
 
+        long hashTasks = passwordHashExecutor.getTaskCount();
+
         assertThrows(UserNotFoundException.class, () -> userService.completeProfile(profileCompletionRequest));
+        // Verified against the dummy hash like a wrong password
+        assertEquals(hashTasks + 1, passwordHashExecutor.getTaskCount());
     }
 
     //Test for get referred users successfully
@@ -114,9 +477,10 @@ public class UserServiceTest {
         List<String> referredEmails = Arrays.asList("user2@example.com", "user3@example.com");
         User referrer = new User();
         referrer.setReferralCode("REF123");
-        referrer.setReferredUsers(referredEmails);
 
         when(userRepository.findByReferralCode("REF123")).thenReturn(Optional.of(referrer));
+        when(referralEdgeRepository.findByReferrerCodeOrderByIdAsc(eq("REF123"), any(Limit.class)))
+                .thenReturn(referredEmails.stream().map(email -> edge("REF123", email)).toList());
 
         User user2 = new User();
         user2.setEmail("user2@example.com");
@@ -128,9 +492,11 @@ public class UserServiceTest {
         List<User> referredUsers = Arrays.asList(user2, user3);
         when(userRepository.findByEmailInAndProfileCompletedTrue(referredEmails)).thenReturn(Optional.of(referredUsers));
 
-        List<UserResponse> responses = userService.getReferredUsers("REF123");
+        ReferredUsersPage page = userService.getReferredUsers("REF123", null, null);
+        List<UserResponse> responses = page.getUsers();
 
         assertNotNull(responses);
+        assertNull(page.getNextCursor());
         assertEquals(2, responses.size());
         assertEquals("user2@example.com", responses.get(0).getEmail());
         assertEquals("user3@example.com", responses.get(1).getEmail());
@@ -141,6 +507,237 @@ public class UserServiceTest {
     public void testGetReferredUserInvalidReferralCodeException() {
         when(userRepository.findByReferralCode("INVALID")).thenReturn(Optional.empty());
 
-        assertThrows(InvalidReferralCodeException.class, () -> userService.getReferredUsers("INVALID"));
+        assertThrows(InvalidReferralCodeException.class, () -> userService.getReferredUsers("INVALID", null, null));
+    }
+
+    //Test for reading the referral totals from the counter document
+    @Test
+    public void testGetReferralCount() {
+        ReferralCounter counter = new ReferralCounter();
+        counter.setReferralCode("REF123");
+        counter.setSignedUp(5);
+        counter.setCompleted(3);
+        when(referralCounterRepository.findById("REF123")).thenReturn(Optional.of(counter));
+
+        ReferralCountResponse response = userService.getReferralCount("REF123");
+
+        assertEquals(5, response.getSignedUpReferrals());
+        assertEquals(3, response.getCompletedReferrals());
+        verify(userRepository, never()).findByReferralCode(anyString());
+    }
+
+    //Test for zero totals and InvalidReferralCodeException when no counter exists
+    @Test
+    public void testGetReferralCountWithoutCounter() {
+        User referrer = new User();
+        referrer.setReferralCode("REF123");
+        when(userRepository.findByReferralCode("REF123")).thenReturn(Optional.of(referrer));
+
+        assertEquals(0, userService.getReferralCount("REF123").getCompletedReferrals());
+        assertThrows(InvalidReferralCodeException.class, () -> userService.getReferralCount("INVALID"));
+    }
+
+    //Test for walking the referrals page by page with the returned cursor
+    @Test
+    public void testGetReferredUsersKeysetPagination() {
+        User referrer = new User();
+        referrer.setReferralCode("REF123");
+        when(userRepository.findByReferralCode("REF123")).thenReturn(Optional.of(referrer));
+
+        ReferralEdge first = edge("REF123", "user2@example.com");
+        ReferralEdge second = edge("REF123", "user3@example.com");
+        when(referralEdgeRepository.findByReferrerCodeOrderByIdAsc("REF123", Limit.of(2))).thenReturn(List.of(first, second));
+        when(referralEdgeRepository.findByReferrerCodeAndIdGreaterThanOrderByIdAsc("REF123", first.getId(), Limit.of(2)))
+                .thenReturn(List.of(second));
+
+        User user2 = new User();
+        user2.setEmail("user2@example.com");
+        User user3 = new User();
+        user3.setEmail("user3@example.com");
+        when(userRepository.findByEmailInAndProfileCompletedTrue(List.of("user2@example.com"))).thenReturn(Optional.of(List.of(user2)));
+        when(userRepository.findByEmailInAndProfileCompletedTrue(List.of("user3@example.com"))).thenReturn(Optional.of(List.of(user3)));
+
+        ReferredUsersPage page1 = userService.getReferredUsers("REF123", null, 1);
+        assertEquals("user2@example.com", page1.getUsers().get(0).getEmail());
+        assertNotNull(page1.getNextCursor());
+
+        ReferredUsersPage page2 = userService.getReferredUsers("REF123", page1.getNextCursor(), 1);
+        assertEquals("user3@example.com", page2.getUsers().get(0).getEmail());
+        assertNull(page2.getNextCursor());
+    }
+
+    //Test for InvalidPageCursorException on a tampered cursor
+    @Test
+    public void testGetReferredUsersInvalidCursor() {
+        User referrer = new User();
+        referrer.setReferralCode("REF123");
+        when(userRepository.findByReferralCode("REF123")).thenReturn(Optional.of(referrer));
+
+        assertThrows(InvalidPageCursorException.class, () -> userService.getReferredUsers("REF123", "not-a-cursor", 10));
+    }
+
+    //Test for serving repeated referrer lookups from the cache
+    @Test
+    public void testGetReferredUsersCachesReferrer() {
+        User referrer = new User();
+        referrer.setReferralCode("REF123");
+        when(userRepository.findByReferralCode("REF123")).thenReturn(Optional.of(referrer));
+
+        userService.getReferredUsers("REF123", null, null);
+        userService.getReferredUsers("REF123", null, null);
+
+        verify(userRepository, times(1)).findByReferralCode("REF123");
+    }
+
+    //Test for concurrent requests for the same page sharing one set of queries
+    @Test
+    public void testGetReferredUsersCoalescesConcurrentRequests() throws Exception {
+        User referrer = new User();
+        referrer.setReferralCode("REF123");
+        when(userRepository.findByReferralCode("REF123")).thenReturn(Optional.of(referrer));
+        CountDownLatch release = new CountDownLatch(1);
+        when(referralEdgeRepository.findByReferrerCodeOrderByIdAsc(eq("REF123"), any(Limit.class))).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return List.of(edge("REF123", "user1@example.com"));
+        });
+        when(userRepository.findByEmailInAndProfileCompletedTrue(List.of("user1@example.com"))).thenReturn(Optional.of(List.of(user)));
+        double sharedBefore = referredUsersCalls("shared");
+
+        List<Future<ReferredUsersPage>> pages = new ArrayList<>();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 5; i++) {
+                pages.add(callers.submit(() -> userService.getReferredUsers("REF123", null, null)));
+            }
+            while (referredUsersCalls("shared") < sharedBefore + 4) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            for (Future<ReferredUsersPage> page : pages) {
+                assertEquals(1, page.get().getUsers().size());
+            }
+        }
+
+        verify(referralEdgeRepository, times(1)).findByReferrerCodeOrderByIdAsc(eq("REF123"), any(Limit.class));
+        verify(userRepository, times(1)).findByEmailInAndProfileCompletedTrue(anyList());
+    }
+
+    private double referredUsersCalls(String outcome) {
+        return meterRegistry.get("single.flight.calls").tags("name", "referred-users", "outcome", outcome).functionCounter().count();
+    }
+
+    //Test for invalidating the cached referrer when its profile changes
+    @Test
+    public void testCompleteProfileInvalidatesCachedReferrer() {
+        when(userRepository.findByReferralCode("REF123")).thenReturn(Optional.of(user));
+        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+
+        userService.getReferredUsers("REF123", null, null);
+        userService.completeProfile(profileCompletionRequest);
+        userService.getReferredUsers("REF123", null, null);
+
+        verify(userRepository, times(2)).findByReferralCode("REF123");
+    }
+
+    //Test for fetching the downline one level per query
+    @Test
+    public void testGetDownlineByLevel() {
+        when(userRepository.findByReferralCode("REF123")).thenReturn(Optional.of(user));
+        when(userRepository.findReferredBy(eq(List.of("REF123")), anyInt()))
+                .thenReturn(List.of(downlineUser("a@example.com", "AAA111", "REF123"), downlineUser("b@example.com", "BBB222", "REF123")));
+        when(userRepository.findReferredBy(eq(List.of("AAA111", "BBB222")), anyInt()))
+                .thenReturn(List.of(downlineUser("c@example.com", "CCC333", "AAA111")));
+        when(userRepository.findReferredBy(eq(List.of("CCC333")), anyInt())).thenReturn(List.of());
+
+        DownlineResponse response = userService.getDownline("REF123", 5);
+
+        assertEquals(5, response.getDepth());
+        assertFalse(response.isTruncated());
+        assertEquals(3, response.getNodes().size());
+        assertEquals(1, response.getNodes().get(0).getDepth());
+        assertEquals("c@example.com", response.getNodes().get(2).getEmail());
+        assertEquals(2, response.getNodes().get(2).getDepth());
+        verify(userRepository, times(3)).findReferredBy(anyCollection(), anyInt());
+    }
+
+    //Test for stopping at the requested depth
+    @Test
+    public void testGetDownlineStopsAtDepth() {
+        when(userRepository.findByReferralCode("REF123")).thenReturn(Optional.of(user));
+        when(userRepository.findReferredBy(eq(List.of("REF123")), anyInt()))
+                .thenReturn(List.of(downlineUser("a@example.com", "AAA111", "REF123")));
+
+        DownlineResponse response = userService.getDownline("REF123", 1);
+
+        assertEquals(1, response.getNodes().size());
+        verify(userRepository, times(1)).findReferredBy(anyCollection(), anyInt());
+    }
+
+    //Test for cutting the downline at the node limit
+    @Test
+    public void testGetDownlineTruncated() {
+        ReflectionTestUtils.setField(userService, "maxDownlineNodes", 2);
+        try {
+            when(userRepository.findByReferralCode("REF123")).thenReturn(Optional.of(user));
+            when(userRepository.findReferredBy(eq(List.of("REF123")), eq(3))).thenReturn(List.of(
+                    downlineUser("a@example.com", "AAA111", "REF123"),
+                    downlineUser("b@example.com", "BBB222", "REF123"),
+                    downlineUser("c@example.com", "CCC333", "REF123")));
+
+            DownlineResponse response = userService.getDownline("REF123", 3);
+
+            assertTrue(response.isTruncated());
+            assertEquals(2, response.getNodes().size());
+            verify(userRepository, times(1)).findReferredBy(anyCollection(), anyInt());
+        } finally {
+            ReflectionTestUtils.setField(userService, "maxDownlineNodes", 1000);
+        }
+    }
+
+    //Test for downline of an unknown referral code
+    @Test
+    public void testGetDownlineInvalidReferralCodeException() {
+        when(userRepository.findByReferralCode("INVALID")).thenReturn(Optional.empty());
+
+        assertThrows(InvalidReferralCodeException.class, () -> userService.getDownline("INVALID", null));
+        verify(userRepository, never()).findReferredBy(anyCollection(), anyInt());
+    }
+
+    // The single user written by completeProfile, along with the referrers touched in the same bulk write
+    @SuppressWarnings("unchecked")
+    private User updatedProfile(Set<String> touchedReferralCodes) {
+        ArgumentCaptor<List<User>> captor = ArgumentCaptor.forClass(List.class);
+        verify(userRepository).updateProfiles(captor.capture(), eq(touchedReferralCodes));
+        assertEquals(1, captor.getValue().size());
+        return captor.getValue().get(0);
+    }
+
+    private SignupRequest signupRequestWithName() {
+        signupRequest.setName("User 1");
+        return signupRequest;
+    }
+
+    private SignupRequest batchRequest(String email, String referrerCode) {
+        SignupRequest request = new SignupRequest();
+        request.setName("Batch User");
+        request.setEmail(email);
+        request.setPassword("password123");
+        request.setReferrerCode(referrerCode);
+        return request;
+    }
+
+    private User downlineUser(String email, String referralCode, String referrerCode) {
+        User downline = new User();
+        downline.setEmail(email);
+        downline.setReferralCode(referralCode);
+        downline.setReferrerCode(referrerCode);
+        return downline;
+    }
+
+    private ReferralEdge edge(String referrerCode, String referredEmail) {
+        ReferralEdge edge = new ReferralEdge();
+        edge.setId(new ObjectId().toHexString());
+        edge.setReferrerCode(referrerCode);
+        edge.setReferredEmail(referredEmail);
+        return edge;
     }
 }